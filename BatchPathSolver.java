@@ -0,0 +1,116 @@
+// This answers many independent single robot (start, goal) queries against
+// one maze. The maze is built once and only read afterwards, so every worker
+// shares it. Each worker thread keeps its own GridAStar, whose flat arrays
+// are reused from query to query, and the queries are split over a
+// ForkJoinPool. A result is the compact cell path of a query (cell index
+// y * width + x, start to goal), or null if the goal can't be reached.
+
+package mazeworld;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class BatchPathSolver {
+
+	// queries per task below which a task stops splitting
+	private static final int BATCH_SIZE = 64;
+
+	private final Maze maze;
+	private final int width;
+	private final ForkJoinPool pool;
+	private final ThreadLocal<GridAStar> scratch;
+
+	public BatchPathSolver(int width, int height, int[][] barriers) {
+		this(new Maze(width, height, barriers), ForkJoinPool.commonPool());
+	}
+
+	// a Maze is immutable, so it can be shared with other solvers and problems
+	public BatchPathSolver(Maze m, ForkJoinPool p) {
+		maze = m;
+		width = m.getWidth();
+		pool = p;
+		scratch = new ThreadLocal<GridAStar>() {
+			@Override
+			protected GridAStar initialValue() {
+				return new GridAStar(maze);
+			}
+		};
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	// solves every query, each given as {startx, starty, goalx, goaly}. The
+	// result at index i is the path for query i
+	public int[][] solve(List<int[]> queries) {
+		int[][] paths = new int[queries.size()][];
+		pool.invoke(new SolveTask(queries, paths, 0, queries.size()));
+		return paths;
+	}
+
+	// solves a single query on the calling thread
+	public int[] solve(int startx, int starty, int goalx, int goaly) {
+		GridAStar search = scratch.get();
+		return search.aStar(search.cellOf(startx, starty), search.cellOf(goalx, goaly));
+	}
+
+	private class SolveTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private List<int[]> queries;
+		private int[][] paths;
+		private int from, to;
+
+		public SolveTask(List<int[]> q, int[][] p, int f, int t) {
+			queries = q;
+			paths = p;
+			from = f;
+			to = t;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= BATCH_SIZE) {
+				for (int i = from; i < to; i++) {
+					int[] query = queries.get(i);
+					paths[i] = solve(query[0], query[1], query[2], query[3]);
+				}
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new SolveTask(queries, paths, from, middle), new SolveTask(queries, paths, middle, to));
+		}
+	}
+
+	public static void main(String[] args) {
+		MazeGenerator generator = new MazeGenerator(256, 256, 0.2, 1);
+		ArrayList<int[]> queries = new ArrayList<int[]>();
+		for (int i = 0; i < 20000; i++) {
+			int[][] cells = generator.freeCells(2);
+			queries.add(new int[] {cells[0][0], cells[0][1], cells[1][0], cells[1][1]});
+		}
+
+		int cores = Runtime.getRuntime().availableProcessors();
+		for (int threads = 1; threads <= cores; threads *= 2) {
+			ForkJoinPool pool = new ForkJoinPool(threads);
+			BatchPathSolver solver = new BatchPathSolver(generator.getMaze(), pool);
+			solver.solve(queries);   // warm up
+			long start = System.nanoTime();
+			int[][] paths = solver.solve(queries);
+			double seconds = (System.nanoTime() - start) / 1e9;
+			int solved = 0;
+			for (int[] path : paths) {
+				if (path != null) {
+					solved++;
+				}
+			}
+			System.out.printf("%2d threads: %8.0f queries/s (%d of %d solved)%n", threads,
+					queries.size() / seconds, solved, queries.size());
+			pool.shutdown();
+		}
+	}
+}
@@ -13,50 +13,53 @@ public class BlindMazeProblem extends UUSearchProblem {
 	
 	private int goalx, goaly, mazeWidth, mazeHeight, startx, starty;
 	
-	// two arrayLists of the possible x coordinates and the possible y coordinates
-	// array list used so that states can be removed and added easily
-	private ArrayList<Integer> possibleX, possibleY;
+	// bitsets of the possible x coordinates and the possible y coordinates: 
+	// coordinate i is bit i % 64 of word i / 64. A move shifts a whole set at 
+	// once, so the maze can be any width
+	private long[] possibleX, possibleY;
 	private Maze maze;
+	private MazeOverlay overlay;     // start, goal and move marks for display
 
 	public BlindMazeProblem(int width, int height, int startX, int startY, int goalX, int goalY, int[][] barriers) {
-		mazeWidth = width;
-		mazeHeight = height;
+		this(new Maze(width, height, barriers), startX, startY, goalX, goalY);
+	}
+	
+	// a problem on an existing maze. The maze is only read, so it can be shared
+	// with other problems
+	public BlindMazeProblem(Maze m, int startX, int startY, int goalX, int goalY) {
+		maze = m;
+		mazeWidth = maze.getWidth();
+		mazeHeight = maze.getHeight();
 		goalx = goalX;
 		goaly = goalY;
 		startx = startX;
 		starty = startY;
+		overlay = new MazeOverlay(maze);
 		
-		maze = new Maze(mazeWidth, mazeHeight, barriers);
-		
-		possibleX = new ArrayList<Integer>();
-		possibleY = new ArrayList<Integer>();
-		 
 		// the original state is all x coordinates and y coordinates
-		for (int w = 0; w < mazeWidth; w++) {
-			possibleX.add(w);
-		}
+		possibleX = fullSet(mazeWidth);
+		possibleY = fullSet(mazeHeight);
 		
-		for (int h = 0; h < mazeHeight; h++) {
-			possibleY.add(h);
-		}
-		
-		startNode = new BlindSearchNode(possibleX, possibleY, startX, startY, "");
-		maze.setPathNode(startX, startY, 's');
-		maze.setPathNode(goalx, goaly, 'g');
+		startNode = new BlindSearchNode(possibleX, possibleY, startX, startY, "", null);
+		overlay.setPathNode(startX, startY, 's');
+		overlay.setPathNode(goalx, goaly, 'g');
 	}
 	
 	
 	private class BlindSearchNode implements UUSearchNode {
 	
-		private ArrayList<Integer> stateX;  
-		private ArrayList<Integer> stateY;
+		private long[] stateX;  
+		private long[] stateY;
 		int cost, topMostOption, bottomMostOption, rightMostOption, leftMostOption, x, y;
+		// moves made so far, and the heuristic split into its x and y parts
+		int pathCost, heuristicX, heuristicY;
 		String direction;
 
-		public BlindSearchNode(ArrayList<Integer> possibleX, ArrayList<Integer> possibleY, int startX, int startY, String theDirection) {
+		// parent is the node this one was reached from, or null for the start
+		public BlindSearchNode(long[] possibleX, long[] possibleY, int startX, int startY, String theDirection, 
+				BlindSearchNode parent) {
 			stateX = possibleX;
 			stateY = possibleY;
-			cost = this.calculateHeuristic();
 			x = startX;
 			y = startY;
 			direction = theDirection;
@@ -69,27 +72,31 @@ public class BlindMazeProblem extends UUSearchProblem {
 			
 			if (y < 0) {
 				y = 0;
-			} else if (y >= mazeWidth) {
-				y = mazeWidth - 1;
+			} else if (y >= mazeHeight) {
+				y = mazeHeight - 1;
 			}
 			
 			// variables hold the topMost, bottomMost, leftMost, and rightMost
-			// coordinates in the current belief state. These values are used when 
-			// a robot moves (removed or added)
-			topMostOption = 0;
-			bottomMostOption = mazeHeight;
-			rightMostOption = 0;
-			leftMostOption = mazeWidth;
-			for (int i = 0; i < stateX.size(); i++) {
-				int x = stateX.get(i);
-				rightMostOption = Math.max(x, rightMostOption);
-				leftMostOption = Math.min(x, leftMostOption);
-			}
-			for (int i = 0; i < stateY.size(); i++) {
-				int y = stateY.get(i);		
-				topMostOption = Math.max(y, topMostOption);
-				bottomMostOption = Math.min(y, bottomMostOption);
+			// coordinates in the current belief state
+			topMostOption = highest(stateY);
+			bottomMostOption = lowest(stateY);
+			rightMostOption = highest(stateX);
+			leftMostOption = lowest(stateX);
+			
+			// a move changes only one of the two sets, the other part of the 
+			// heuristic is the parent's
+			if (parent == null) {
+				pathCost = 0;
+				heuristicX = collapseCost(leftMostOption, rightMostOption, goalx, mazeWidth);
+				heuristicY = collapseCost(bottomMostOption, topMostOption, goaly, mazeHeight);
+			} else {
+				pathCost = parent.pathCost + 1;
+				heuristicX = (stateX == parent.stateX) ? parent.heuristicX 
+						: collapseCost(leftMostOption, rightMostOption, goalx, mazeWidth);
+				heuristicY = (stateY == parent.stateY) ? parent.heuristicY 
+						: collapseCost(bottomMostOption, topMostOption, goaly, mazeHeight);
 			}
+			cost = pathCost + heuristicX + heuristicY;
 		}		
 		
 		// method gets all successors of the current state by either moving the robot north, south, 
@@ -98,17 +105,17 @@ public class BlindMazeProblem extends UUSearchProblem {
 			
 			ArrayList<UUSearchNode> successors = new ArrayList<UUSearchNode>();
 			
-			ArrayList<Integer> newStateUpMove = this.createNewState("up");
-			BlindSearchNode topSuccessor = new BlindSearchNode(stateX, newStateUpMove, x, y+1, "north");
+			long[] newStateUpMove = this.createNewState("up");
+			BlindSearchNode topSuccessor = new BlindSearchNode(stateX, newStateUpMove, x, y+1, "north", this);
 			
-			ArrayList<Integer> newStateDownMove = this.createNewState("down");
-			BlindSearchNode bottomSuccessor = new BlindSearchNode(stateX, newStateDownMove, x, y-1, "south");
+			long[] newStateDownMove = this.createNewState("down");
+			BlindSearchNode bottomSuccessor = new BlindSearchNode(stateX, newStateDownMove, x, y-1, "south", this);
 			
-			ArrayList<Integer> newStateRightMove = this.createNewState("right");
-			BlindSearchNode rightSuccessor = new BlindSearchNode(newStateRightMove, stateY, x+1, y, "east");
+			long[] newStateRightMove = this.createNewState("right");
+			BlindSearchNode rightSuccessor = new BlindSearchNode(newStateRightMove, stateY, x+1, y, "east", this);
 			
-			ArrayList<Integer> newStateLeftMove = this.createNewState("left");
-			BlindSearchNode leftSuccessor = new BlindSearchNode(newStateLeftMove, stateY, x-1, y, "west");
+			long[] newStateLeftMove = this.createNewState("left");
+			BlindSearchNode leftSuccessor = new BlindSearchNode(newStateLeftMove, stateY, x-1, y, "west", this);
 			
 			if (topSuccessor.isStateSafe()) { successors.add(topSuccessor); }
 			if (bottomSuccessor.isStateSafe()) { successors.add(bottomSuccessor); }
@@ -118,101 +125,46 @@ public class BlindMazeProblem extends UUSearchProblem {
 			return successors;
 		}
 		
-		// not used for blind robot
+		// the same moves; the heuristic costs little next to the new belief 
+		// states, so breadth first search uses these successors too
 		public ArrayList<UUSearchNode> getSuccessors() {
-			return null;
+			return getSuccessorsWithHeuristic();
 		}
 		
-		// this method creates a new ArrayList of belief states, depending
-		// on the direction of the robot move. when moving north, the bottom-
-		// most y coordinate is removed from the belief state and 
-		// (1 + the top-most) is added to the belief state if the top-most 
-		// is not already the highest possible y coordinate
-		public ArrayList<Integer> createNewState(String direction) {
-			ArrayList<Integer> returnState = new ArrayList<Integer>();
-			
+		// this method creates the new belief state for a move of the robot. 
+		// Moving north, every possible y coordinate goes up by one, except that
+		// a robot on the top row bumps into the edge and stays there: the set
+		// is shifted up and the top-most coordinate is kept if it was possible.
+		// The other directions work the same way
+		public long[] createNewState(String direction) {
 			if (direction.equals("up")) {
-				for (int i = 0; i < stateY.size(); i++) {
-					if (stateY.get(i) != bottomMostOption) {
-						returnState.add(stateY.get(i));
-					}
-				}
-				if (topMostOption < mazeHeight && !returnState.contains(topMostOption)) {
-					returnState.add(topMostOption);
-				}
-			} 
-			else if (direction.equals("down")) {
-				for (int i = 0; i < stateY.size(); i++) {
-					if (stateY.get(i) != topMostOption) {
-						returnState.add(stateY.get(i));
-					}
-				}
-				if (bottomMostOption >= 0 && !returnState.contains(bottomMostOption)) {
-					returnState.add(bottomMostOption);
-				}
-			} 
-			else if (direction.equals("left")) {
-				for (int i = 0; i < stateX.size(); i++) {
-					if (stateX.get(i) != rightMostOption) {
-						returnState.add(stateX.get(i));
-					}
-				}	
-				if (leftMostOption >= 0 && !returnState.contains(leftMostOption)) {
-					returnState.add(leftMostOption);
-				}
-			} 
-			else if (direction.equals("right")) {
-				for (int i = 0; i < stateX.size(); i++) {
-					if (stateX.get(i) != leftMostOption) {
-						returnState.add(stateX.get(i));
-					}
-				}
-				if (rightMostOption < mazeWidth && !returnState.contains(rightMostOption)) {
-					returnState.add(rightMostOption);
-				}
-			}			
-			return returnState;
+				return shiftUp(stateY, mazeHeight);
+			} else if (direction.equals("down")) {
+				return shiftDown(stateY);
+			} else if (direction.equals("left")) {
+				return shiftDown(stateX);
+			} else if (direction.equals("right")) {
+				return shiftUp(stateX, mazeWidth);
+			}
+			return null;
 		}
 		
 		
 		private boolean isStateSafe() {
-			if (this.stateX.size() != 0 && this.stateY.size() != 0 ) {
-				if (maze.getMazeState(this.getx(), this.gety()) != '#') {
+			if (count(this.stateX) != 0 && count(this.stateY) != 0) {
+				if (!maze.isBlocked(this.getx(), this.gety())) {
 					return true;
 				}
 			} 
 			return false;
 		}
 		
-		// the heuristic for this problem is the number of states in the belief 
-		// state + the multiplier(10) to the power of the distance of that belief 
-		// state to the goal.
-		public int calculateHeuristic() {
-			int heuristic = 0;
-			int multiplier = 10; 
-			for (int i = 0; i < stateX.size(); i++) {
-				int distanceToGoalX = Math.abs(goalx - stateX.get(i));
-				heuristic++;
-				heuristic += Math.pow(multiplier, distanceToGoalX);
-			}
-			for (int i = 0; i < stateY.size(); i++) {
-				int distanceToGoalY = Math.abs(goalx - stateY.get(i));
-				heuristic++;
-				heuristic += Math.pow(multiplier, distanceToGoalY);
-			}
-			return heuristic;
-		}
-		
 		// the goal is reached when there is only one state in the belief state and it 
 		// is the goal coordinates
 		@Override
 		public boolean goalTest() {
-			if (this.stateX.size() == 1 && this.stateY.size() == 1) {
-				if (this.stateX.get(0) == goalx && this.stateY.get(0) == goaly) {
-					return true;
-				}
-			}
-			return false;
+			return count(this.stateX) == 1 && count(this.stateY) == 1 
+					&& lowest(this.stateX) == goalx && lowest(this.stateY) == goaly;
 		}
 		
 		
@@ -225,6 +177,14 @@ public class BlindMazeProblem extends UUSearchProblem {
 			return this.cost;
 		}
 		
+		public int getPathCost() {
+			return this.pathCost;
+		}
+		
+		public int getHeuristic() {
+			return this.heuristicX + this.heuristicY;
+		}
+		
 		public int getx() {
 			return this.x;
 		}
@@ -238,40 +198,118 @@ public class BlindMazeProblem extends UUSearchProblem {
 		}
 		
 		
+		// the belief states are equal if the bitsets hold the same words
 		@Override
 		public boolean equals(Object other) {
-			if (((BlindSearchNode) other).stateX.size() == this.stateX.size() && 
-					((BlindSearchNode) other).stateY.size() == this.stateY.size()) {
-				for (int i = 0; i < stateX.size(); i++){
-					if (stateX.get(i) != ((BlindSearchNode) other).stateX.get(i)) {
-						return false; 
-					}
-				}			
-				for (int j = 0; j < stateY.size(); j++){
-					if (stateY.get(j) != ((BlindSearchNode) other).stateY.get(j)) {
-						return false; 
-					}
-				}		
-				return true;
-			}
-			return false;
+			return Arrays.equals(stateX, ((BlindSearchNode) other).stateX) 
+					&& Arrays.equals(stateY, ((BlindSearchNode) other).stateY);
 		}
 
 		
 		@Override
 		public int hashCode() {
-			int returnInt = 0;
-			int multiplier = 10;
-			for (int i = 0; i < this.stateX.size(); i++) {
-				returnInt += this.stateX.get(i) * multiplier;
-				multiplier *= 10;
+			return 31 * Arrays.hashCode(stateX) + Arrays.hashCode(stateY);
+		}
+	}
+	
+	
+	// the heuristic for this problem is, per axis, the fewest moves that turn
+	// the possible coordinates lo .. hi into just the goal coordinate. The 
+	// set only shrinks when it is pushed against an edge, so it is either 
+	// pushed to the top (size - 1 - lo moves) and walked down to the goal, or 
+	// pushed to the bottom (hi moves) and walked up. Moves along one axis don't 
+	// change the other, so the sum of the two parts never overestimates
+	private static int collapseCost(int lo, int hi, int goal, int size) {
+		if (lo == hi) {
+			return Math.abs(lo - goal);
+		}
+		int top = size - 1;
+		return Math.min((top - lo) + (top - goal), hi + goal);
+	}
+	
+	// a set holding 0 .. size - 1
+	private static long[] fullSet(int size) {
+		long[] bits = new long[(size + 63) >>> 6];
+		Arrays.fill(bits, -1L);
+		if ((size & 63) != 0) {
+			bits[bits.length - 1] = (1L << size) - 1;
+		}
+		return bits;
+	}
+	
+	// every element goes up by one, and size - 1 stays where it is
+	private static long[] shiftUp(long[] bits, int size) {
+		long[] shifted = new long[bits.length];
+		for (int i = 0; i < bits.length; i++) {
+			shifted[i] = (bits[i] << 1) | (i > 0 ? bits[i - 1] >>> 63 : 0);
+		}
+		int last = bits.length - 1;
+		long top = 1L << (size - 1);
+		long keep = (size & 63) == 0 ? -1L : (1L << size) - 1;
+		shifted[last] = (shifted[last] & keep) | (bits[last] & top);
+		return shifted;
+	}
+	
+	// every element goes down by one, and 0 stays where it is
+	private static long[] shiftDown(long[] bits) {
+		long[] shifted = new long[bits.length];
+		for (int i = 0; i < bits.length; i++) {
+			shifted[i] = (bits[i] >>> 1) | (i + 1 < bits.length ? bits[i + 1] << 63 : 0);
+		}
+		shifted[0] |= bits[0] & 1L;
+		return shifted;
+	}
+	
+	private static int count(long[] bits) {
+		int count = 0;
+		for (int i = 0; i < bits.length; i++) {
+			count += Long.bitCount(bits[i]);
+		}
+		return count;
+	}
+	
+	// the smallest element, or -1 if the set is empty
+	private static int lowest(long[] bits) {
+		return next(bits, 0);
+	}
+	
+	// the smallest element that is at least from, or -1 if there is none
+	private static int next(long[] bits, int from) {
+		int word = from >>> 6;
+		if (word >= bits.length) {
+			return -1;
+		}
+		long remaining = bits[word] & (-1L << from);
+		while (remaining == 0) {
+			word++;
+			if (word == bits.length) {
+				return -1;
 			}
-			for (int j = 0; j < this.stateY.size(); j++) {
-				returnInt += this.stateY.get(j) * multiplier;
-				multiplier *= 10;
+			remaining = bits[word];
+		}
+		return (word << 6) + Long.numberOfTrailingZeros(remaining);
+	}
+	
+	// the largest element, or -1 if the set is empty
+	private static int highest(long[] bits) {
+		for (int i = bits.length - 1; i >= 0; i--) {
+			if (bits[i] != 0) {
+				return (i << 6) + 63 - Long.numberOfLeadingZeros(bits[i]);
 			}
-			return returnInt;
 		}
+		return -1;
+	}
+	
+	// the elements as "(a, b, c)"
+	private static String format(long[] bits) {
+		StringBuilder text = new StringBuilder("(");
+		for (int i = lowest(bits); i != -1; i = next(bits, i + 1)) {
+			if (text.length() > 1) {
+				text.append(", ");
+			}
+			text.append(i);
+		}
+		return text.append(")").toString();
 	}
 	
 	
@@ -294,34 +332,19 @@ public class BlindMazeProblem extends UUSearchProblem {
 				symbol = '<';
 			}
 			
-			maze.setPathNode(x, y, symbol);
-			maze.displayMaze();
+			overlay.setPathNode(x, y, symbol);
+			overlay.displayMaze();
 			
 			System.out.println("The robot just moved " + direction);
 			System.out.print("\nThe current belief state is: \n");
-			System.out.print("Potential x coordinates: (");
-			for (int j = 0; j < current.stateX.size(); j++) {
-				if (j != 0) {
-					System.out.print(", ");
-				}
-				System.out.print(current.stateX.get(j));
-			}
-			System.out.print(")\n");
-			
-			System.out.print("Potential y coordinates: (");
-			for (int j = 0; j < current.stateY.size(); j++) {
-				if (j != 0) {
-					System.out.print(", ");
-				}
-				System.out.print(current.stateY.get(j));
-			}
-			System.out.print(")\n");
+			System.out.print("Potential x coordinates: " + format(current.stateX) + "\n");
+			System.out.print("Potential y coordinates: " + format(current.stateY) + "\n");
 		}
 		System.out.print(pathString);
 	}
 	
 	public void display() {
-		maze.displayMaze();
+		overlay.displayMaze();
 	}
 
 	public static void main(String[] args) {
@@ -336,6 +359,16 @@ public class BlindMazeProblem extends UUSearchProblem {
 		System.out.println("");
 		System.out.println("-------------------------------");
 		System.out.println("");
+		
+		// the memory bounded searches find the same length of path while
+		// holding far fewer belief states
+		BlindMazeProblem problem2 = new BlindMazeProblem(30, 30, 1, 1, 20, 20, barriers1);
+		problem2.AStarSearch();
+		problem2.printStats();
+		problem2.iterativeDeepeningAStarSearch(1000);
+		problem2.printStats();
+		problem2.smaStarSearch(200);
+		problem2.printStats();
 	}
 }
 	
\ No newline at end of file
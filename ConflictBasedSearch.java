@@ -0,0 +1,448 @@
+// This is Conflict-Based Search (CBS) for the multi robot problem. Instead of
+// searching the joint state space of all robots (which grows as
+// (width*height)^robots), every robot is planned on its own with a space-time
+// A*, and conflicts between the plans are resolved in a constraint tree:
+// when two robots are in the same cell at the same time (vertex conflict) or
+// swap cells (edge conflict), the node is split into two children that each
+// forbid one of the robots from doing it, and that robot is replanned.
+//
+// Robots move at the same time here and may wait in place. A robot that has
+// reached its goal stays there. The cost of a plan is the sum over robots of
+// the time each one arrives at its goal for good. With a suboptimality of 1
+// the plans are optimal; with w > 1 the constraint tree is searched with a
+// focal list (the node with the fewest conflicts among those within w of the
+// best cost), which returns plans at most w times the optimal cost and
+// usually needs far fewer splits.
+
+package mazeworld;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+
+public class ConflictBasedSearch {
+
+	private Maze maze;
+	private int width, height, cells;
+	private int robots;
+	private int[] startCells, goalCells;
+	private int[][] goalDistances;      // true distance from every cell to each robot's goal
+	private double suboptimality = 1.0;
+	private SearchStats lastStats;
+	private long lowLevelExpansions;
+
+	// same inputs as the MultiRobotMazeworldProblem constructor
+	public ConflictBasedSearch(int width, int height, int[][] robotsGoals, int[][] robotsStart, int[][] barriers) {
+		this(new Maze(width, height, barriers), robotsGoals, robotsStart);
+	}
+
+	public ConflictBasedSearch(Maze m, int[][] robotsGoals, int[][] robotsStart) {
+		maze = m;
+		width = maze.getWidth();
+		height = maze.getHeight();
+		cells = width * height;
+		robots = robotsStart.length;
+		startCells = new int[robots];
+		goalCells = new int[robots];
+		goalDistances = new int[robots][];
+		for (int i = 0; i < robots; i++) {
+			startCells[i] = robotsStart[i][1] * width + robotsStart[i][0];
+			goalCells[i] = robotsGoals[i][1] * width + robotsGoals[i][0];
+			goalDistances[i] = maze.distancesFrom(robotsGoals[i][0], robotsGoals[i][1]);
+		}
+	}
+
+	// w = 1 gives optimal plans (plain CBS), w > 1 plans within a factor w of optimal
+	public void setSuboptimality(double w) {
+		if (w < 1.0) {
+			throw new IllegalArgumentException("suboptimality must be at least 1, was " + w);
+		}
+		suboptimality = w;
+	}
+
+	public SearchStats getLastSearchStats() {
+		return lastStats;
+	}
+
+	// space-time A* expansions of the last solve, over all replans
+	public long getLowLevelExpansions() {
+		return lowLevelExpansions;
+	}
+
+	// one constraint on one robot: it may not be in cell at time (vertex), or may
+	// not move from cell to toCell between time - 1 and time (edge). Constraints
+	// are shared between tree nodes as a linked list towards the root
+	private static class Constraint {
+		int robot, time, cell, toCell;
+		boolean edge;
+		Constraint next;
+
+		Constraint(int r, int t, int c, int to, boolean e, Constraint n) {
+			robot = r;
+			time = t;
+			cell = c;
+			toCell = to;
+			edge = e;
+			next = n;
+		}
+	}
+
+	// a node of the constraint tree
+	private static class TreeNode {
+		Constraint constraints;
+		int[][] paths;       // paths[robot][t] = cell, the robot stays at the last cell afterwards
+		int cost;            // sum of costs
+		int conflicts;       // number of conflicting robot pairs and times
+
+		TreeNode(Constraint c, int[][] p) {
+			constraints = c;
+			paths = p;
+			for (int i = 0; i < p.length; i++) {
+				cost += p[i].length - 1;
+			}
+		}
+	}
+
+	// plans every robot. Returns paths[robot][t] (cell index y * width + x), all
+	// padded to the same length with the robot waiting at its goal, or null if
+	// there is no plan
+	public int[][] solve() {
+		SearchStats stats = new SearchStats("ConflictBasedSearch", suboptimality == 1.0 ? "cbs" : "cbs-focal");
+		lowLevelExpansions = 0;
+
+		int[][] paths = new int[robots][];
+		for (int i = 0; i < robots; i++) {
+			paths[i] = planRobot(i, null, paths);
+			if (paths[i] == null) {
+				return finish(stats, null);
+			}
+		}
+		TreeNode root = new TreeNode(null, paths);
+		root.conflicts = countConflicts(paths, null);
+
+		PriorityQueue<TreeNode> open = new PriorityQueue<TreeNode>(11, new Comparator<TreeNode>() {
+			public int compare(TreeNode a, TreeNode b) {
+				if (a.cost != b.cost) {
+					return a.cost < b.cost ? -1 : 1;
+				}
+				return a.conflicts - b.conflicts;
+			}
+		});
+		open.add(root);
+
+		while (!open.isEmpty()) {
+			stats.frontier(open.size());
+			TreeNode node = next(open);
+			int[] conflict = new int[5];
+			if (countConflicts(node.paths, conflict) == 0) {
+				return finish(stats, pad(node.paths));
+			}
+			stats.expansions++;
+
+			// conflict = {robot a, robot b, time, cell of a, cell of b} (the two
+			// cells differ only for an edge conflict, where a moves from its cell
+			// to b's while b moves the other way)
+			int a = conflict[0];
+			int b = conflict[1];
+			int time = conflict[2];
+			boolean edge = conflict[3] != conflict[4];
+			for (int side = 0; side < 2; side++) {
+				int robot = side == 0 ? a : b;
+				Constraint constraint;
+				if (!edge) {
+					constraint = new Constraint(robot, time, conflict[3], -1, false, node.constraints);
+				} else if (robot == a) {
+					constraint = new Constraint(robot, time, conflict[3], conflict[4], true, node.constraints);
+				} else {
+					constraint = new Constraint(robot, time, conflict[4], conflict[3], true, node.constraints);
+				}
+				int[][] childPaths = node.paths.clone();
+				childPaths[robot] = planRobot(robot, constraint, childPaths);
+				if (childPaths[robot] == null) {
+					continue;
+				}
+				TreeNode child = new TreeNode(constraint, childPaths);
+				child.conflicts = countConflicts(childPaths, null);
+				stats.generated++;
+				open.add(child);
+			}
+		}
+		return finish(stats, null);
+	}
+
+	// the next tree node to expand: the cheapest one, or with a suboptimality
+	// above 1 the one with the fewest conflicts whose cost is within the bound
+	private TreeNode next(PriorityQueue<TreeNode> open) {
+		if (suboptimality == 1.0) {
+			return open.poll();
+		}
+		double bound = open.peek().cost * suboptimality;
+		TreeNode best = open.peek();
+		for (Iterator<TreeNode> it = open.iterator(); it.hasNext();) {
+			TreeNode node = it.next();
+			if (node.cost <= bound && (node.conflicts < best.conflicts
+					|| (node.conflicts == best.conflicts && node.cost < best.cost))) {
+				best = node;
+			}
+		}
+		open.remove(best);
+		return best;
+	}
+
+	private int[][] finish(SearchStats stats, int[][] paths) {
+		stats.finish(paths == null ? 0 : paths[0].length, paths != null);
+		lastStats = stats;
+		return paths;
+	}
+
+	// cell of a robot at time t, which stays at its last cell once the path ends
+	private static int at(int[] path, int t) {
+		return path[Math.min(t, path.length - 1)];
+	}
+
+	// counts the conflicts between the paths. If first is not null, the earliest
+	// conflict is written into it as {robot a, robot b, time, cell a, cell b} and
+	// counting stops there
+	private int countConflicts(int[][] paths, int[] first) {
+		int end = 0;
+		for (int i = 0; i < paths.length; i++) {
+			end = Math.max(end, paths[i].length);
+		}
+		int conflicts = 0;
+		int[] occupant = new int[cells];
+		int[] occupiedAt = new int[cells];
+		Arrays.fill(occupiedAt, -1);
+		for (int t = 0; t < end; t++) {
+			for (int i = 0; i < paths.length; i++) {
+				int cell = at(paths[i], t);
+				if (occupiedAt[cell] == t) {
+					conflicts++;
+					if (first != null) {
+						first[0] = occupant[cell];
+						first[1] = i;
+						first[2] = t;
+						first[3] = cell;
+						first[4] = cell;
+						return conflicts;
+					}
+				} else {
+					occupiedAt[cell] = t;
+					occupant[cell] = i;
+				}
+			}
+			// edge conflicts: i moves from p to q while the robot at q moves to p
+			if (t + 1 < end) {
+				for (int i = 0; i < paths.length; i++) {
+					int from = at(paths[i], t);
+					int to = at(paths[i], t + 1);
+					if (from == to || occupiedAt[to] != t) {
+						continue;
+					}
+					int j = occupant[to];
+					if (j > i && at(paths[j], t + 1) == from) {
+						conflicts++;
+						if (first != null) {
+							first[0] = i;
+							first[1] = j;
+							first[2] = t + 1;
+							first[3] = from;
+							first[4] = to;
+							return conflicts;
+						}
+					}
+				}
+			}
+		}
+		return conflicts;
+	}
+
+	// space-time A* for one robot under the constraints on it. States are
+	// (cell, time) packed as time * cells + cell. Ties on f go to the state with
+	// fewer conflicts with the other robots' current paths, then to the lower h
+	private int[] planRobot(int robot, Constraint constraints, int[][] others) {
+		HashSet<Long> vertex = new HashSet<Long>();
+		HashSet<Long> edges = new HashSet<Long>();
+		int lastGoalBlock = -1;     // last time the robot may not stand on its goal
+		int lastConstraint = 0;
+		for (Constraint c = constraints; c != null; c = c.next) {
+			if (c.robot != robot) {
+				continue;
+			}
+			lastConstraint = Math.max(lastConstraint, c.time);
+			if (c.edge) {
+				edges.add(((long) c.time * cells + c.cell) * cells + c.toCell);
+			} else {
+				vertex.add((long) c.time * cells + c.cell);
+				if (c.cell == goalCells[robot]) {
+					lastGoalBlock = Math.max(lastGoalBlock, c.time);
+				}
+			}
+		}
+		int[] distance = goalDistances[robot];
+		int start = startCells[robot];
+		int goal = goalCells[robot];
+		if (distance[start] == -1) {
+			return null;
+		}
+		// past this time no constraint applies, so waiting longer can't help
+		int horizon = lastConstraint + cells;
+
+		LongIntHashMap slotOf = new LongIntHashMap(256);
+		int[] slotCell = new int[256];
+		int[] slotTime = new int[256];
+		int[] slotParent = new int[256];
+		int[] slotConflicts = new int[256];
+		int slots = 0;
+		IndexedIntHeap open = new IndexedIntHeap(256);
+
+		slotOf.put(start, 0);
+		slotCell[0] = start;
+		slotTime[0] = 0;
+		slotParent[0] = -1;
+		slots = 1;
+		open.add(0, key(distance[start], 0, distance[start]));
+		int[] moves = { 0, width, -width, 1, -1 };
+
+		while (!open.isEmpty()) {
+			int current = open.poll();
+			lowLevelExpansions++;
+			int cell = slotCell[current];
+			int time = slotTime[current];
+			if (cell == goal && time > lastGoalBlock) {
+				int[] path = new int[time + 1];
+				for (int s = current; s != -1; s = slotParent[s]) {
+					path[slotTime[s]] = slotCell[s];
+				}
+				return path;
+			}
+			if (time >= horizon) {
+				continue;
+			}
+			int x = cell % width;
+			int y = cell / width;
+			int nextTime = time + 1;
+			for (int m = 0; m < moves.length; m++) {
+				int to = cell + moves[m];
+				if ((m == 1 && maze.isBlocked(x, y + 1)) || (m == 2 && maze.isBlocked(x, y - 1))
+						|| (m == 3 && maze.isBlocked(x + 1, y)) || (m == 4 && maze.isBlocked(x - 1, y))) {
+					continue;
+				}
+				long state = (long) nextTime * cells + to;
+				if (vertex.contains(state) || (m != 0 && edges.contains(((long) nextTime * cells + cell) * cells + to))) {
+					continue;
+				}
+				if (slotOf.get(state) != -1) {
+					continue;   // every state at the same time has the same cost, the first one wins
+				}
+				if (slots == slotCell.length) {
+					slotCell = Arrays.copyOf(slotCell, slots * 2);
+					slotTime = Arrays.copyOf(slotTime, slots * 2);
+					slotParent = Arrays.copyOf(slotParent, slots * 2);
+					slotConflicts = Arrays.copyOf(slotConflicts, slots * 2);
+					open.ensureIdCapacity(slots * 2);
+				}
+				int slot = slots++;
+				slotOf.put(state, slot);
+				slotCell[slot] = to;
+				slotTime[slot] = nextTime;
+				slotParent[slot] = current;
+				slotConflicts[slot] = slotConflicts[current] + conflictsAt(robot, others, cell, to, nextTime);
+				open.add(slot, key(nextTime + distance[to], slotConflicts[slot], distance[to]));
+			}
+		}
+		return null;
+	}
+
+	// how many of the other robots' paths this single move collides with
+	private int conflictsAt(int robot, int[][] others, int from, int to, int time) {
+		int conflicts = 0;
+		for (int j = 0; j < others.length; j++) {
+			if (j == robot || others[j] == null) {
+				continue;
+			}
+			int other = at(others[j], time);
+			if (other == to || (other == from && at(others[j], time - 1) == to)) {
+				conflicts++;
+			}
+		}
+		return conflicts;
+	}
+
+	// f in the top bits, then conflicts, then h
+	private static long key(int f, int conflicts, int h) {
+		return ((long) f << 32) | ((long) Math.min(conflicts, 0xffff) << 16) | Math.min(h, 0xffff);
+	}
+
+	// every path padded to the longest one with the robot waiting at its goal
+	private static int[][] pad(int[][] paths) {
+		int end = 0;
+		for (int i = 0; i < paths.length; i++) {
+			end = Math.max(end, paths[i].length);
+		}
+		int[][] padded = new int[paths.length][end];
+		for (int i = 0; i < paths.length; i++) {
+			for (int t = 0; t < end; t++) {
+				padded[i][t] = at(paths[i], t);
+			}
+		}
+		return padded;
+	}
+
+	// sum over robots of the time each one reaches its goal for good
+	public int sumOfCosts(int[][] paths) {
+		int sum = 0;
+		for (int i = 0; i < paths.length; i++) {
+			int t = paths[i].length - 1;
+			while (t > 0 && paths[i][t - 1] == goalCells[i]) {
+				t--;
+			}
+			sum += t;
+		}
+		return sum;
+	}
+
+	// shows the robots at every time step, like MultiRobotMazeworldProblem.showPath
+	public void showPath(int[][] paths) {
+		MazeOverlay overlay = new MazeOverlay(maze);
+		for (int t = 0; t < paths[0].length; t++) {
+			overlay.clear();
+			char currentLetter = 'A';
+			for (int i = 0; i < paths.length; i++) {
+				overlay.setPathNode(paths[i][t] % width, paths[i][t] / width, currentLetter);
+				currentLetter++;
+			}
+			overlay.displayMaze();
+			System.out.println("");
+		}
+	}
+
+	public static void main(String[] args) {
+		int[][] barriers2 = { {3,1}, {3,2}, {3,3}, {5,1}, {5,2}, {5,3}, {6,3}, {7,3}, {8,3}, {2,3}, {1,3},
+				{0,3}, {0,4}, {0,5}, {1,5}, {2,5}, {3,5}, {4,5}, {5,5}, {6,5}, {7,5}, {8,5}, {8,4}, {8,3}};
+		int[][] robots2 = { {5,4}, {4,4}, {3,4} };
+		int[][] goals2 = { {9,8}, {8,8}, {7,8} };
+
+		ConflictBasedSearch cbs = new ConflictBasedSearch(10, 10, goals2, robots2, barriers2);
+		int[][] paths = cbs.solve();
+		cbs.showPath(paths);
+		System.out.println("Sum of costs " + cbs.sumOfCosts(paths) + ", " + cbs.getLastSearchStats().toJson());
+
+		// a warehouse floor with many robots, optimal and within 20% of optimal
+		MazeGenerator generator = new MazeGenerator(40, 40, 0.1, 7);
+		int[][] cells = generator.freeCells(60);
+		int[][] starts = Arrays.copyOfRange(cells, 0, 30);
+		int[][] goals = Arrays.copyOfRange(cells, 30, 60);
+		ConflictBasedSearch fleet = new ConflictBasedSearch(generator.getMaze(), goals, starts);
+		double[] weights = { 1.0, 1.2 };
+		for (int i = 0; i < weights.length; i++) {
+			fleet.setSuboptimality(weights[i]);
+			int[][] fleetPaths = fleet.solve();
+			SearchStats stats = fleet.getLastSearchStats();
+			System.out.printf("30 robots, w=%.1f: sum of costs %d, %d splits, %.1f ms%n", weights[i],
+					fleetPaths == null ? -1 : fleet.sumOfCosts(fleetPaths), stats.getExpansions(),
+					stats.getWallNanos() / 1e6);
+		}
+	}
+}
@@ -0,0 +1,244 @@
+// This is an incremental planner (D* Lite) for a single robot in a maze whose
+// barriers change while the robot drives. It searches backwards from the goal
+// and keeps two values per cell between calls: g, the distance to the goal as
+// of the last search, and rhs, the one step lookahead min(1 + g(neighbor)).
+// A cell whose two values differ is inconsistent and sits in the open queue.
+// When barriers appear or disappear only the cells around them become
+// inconsistent, and the next plan() repairs just the region whose distances
+// actually changed instead of searching the whole maze again.
+//
+// The robot can move its start along the path between plans. The heuristic
+// is measured from the start, so the queue keys would go stale when it moves;
+// like D* Lite we add the distance moved to an offset (km) instead of
+// recomputing every key.
+
+package mazeworld;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class DStarLitePlanner {
+
+	private static final int INFINITY = Integer.MAX_VALUE / 4;
+	private static final int[] DX = { 0, 0, 1, -1 };
+	private static final int[] DY = { 1, -1, 0, 0 };
+
+	private int width, height;
+	private long[] blocked;        // our own copy of the barriers, one bit per cell
+	private int[] g;               // distance to the goal as of the last expansion
+	private int[] rhs;             // one step lookahead distance to the goal
+	private IndexedIntHeap open;   // inconsistent cells, keyed by key()
+	private int start, goal;
+	private int km;                // distance the start has moved, added to every key
+	private SearchStats stats;
+
+	// plans on a copy of the maze's barriers, so later changes don't touch the maze
+	public DStarLitePlanner(Maze maze, int startx, int starty, int goalx, int goaly) {
+		width = maze.getWidth();
+		height = maze.getHeight();
+		int cells = width * height;
+		blocked = new long[(cells + 63) >>> 6];
+		for (int cell = 0; cell < cells; cell++) {
+			if (maze.isBlocked(cell)) {
+				blocked[cell >>> 6] |= 1L << cell;
+			}
+		}
+		g = new int[cells];
+		rhs = new int[cells];
+		Arrays.fill(g, INFINITY);
+		Arrays.fill(rhs, INFINITY);
+		open = new IndexedIntHeap(cells);
+
+		start = starty * width + startx;
+		goal = goaly * width + goalx;
+		rhs[goal] = 0;
+		open.add(goal, key(goal));
+	}
+
+	public int cellOf(int x, int y) {
+		return y * width + x;
+	}
+
+	// the stats of the most recent plan(): the expansions it needed to repair
+	// the distances
+	public SearchStats getLastSearchStats() {
+		return stats;
+	}
+
+	public boolean isBlocked(int x, int y) {
+		if (x < 0 || y < 0 || x >= width || y >= height) {
+			return true;
+		}
+		int cell = y * width + x;
+		return (blocked[cell >>> 6] & (1L << cell)) != 0;
+	}
+
+	// brings the distances up to date and returns the shortest path from the
+	// start to the goal as cell indices (y * width + x), or null if there is
+	// none. Right after construction this is a full search; after updateCells
+	// or moveStart it only repairs what changed
+	public int[] plan() {
+		stats = new SearchStats("DStarLitePlanner", "dstar-lite");
+		computeShortestPath();
+		if (g[start] >= INFINITY) {
+			stats.finish(0, false);
+			return null;
+		}
+
+		// walk down the distances: every step goes to a neighbor one closer
+		int[] path = new int[g[start] + 1];
+		int cell = start;
+		path[0] = cell;
+		for (int i = 1; i < path.length; i++) {
+			int x = cell % width;
+			int y = cell / width;
+			int next = -1;
+			int best = INFINITY;
+			for (int d = 0; d < 4; d++) {
+				int nx = x + DX[d];
+				int ny = y + DY[d];
+				if (!isBlocked(nx, ny) && g[ny * width + nx] < best) {
+					best = g[ny * width + nx];
+					next = ny * width + nx;
+				}
+			}
+			cell = next;
+			path[i] = cell;
+		}
+		stats.finish(path.length, true);
+		return path;
+	}
+
+	// the robot moved, (x,y) is its new position. The next plan() starts from there.
+	// The keys in the queue were computed from the old start, so the distance
+	// moved goes into km right away, whether or not barriers change too
+	public void moveStart(int x, int y) {
+		int moved = y * width + x;
+		km += manhattan(start, moved);
+		start = moved;
+	}
+
+	// barriers changed. Each entry is {x, y, blocked} with blocked 1 for a new
+	// barrier and 0 for a cleared one. Only the changed cells and their
+	// neighbors are touched here; plan() does the rest
+	public void updateCells(List<int[]> changed) {
+		for (int i = 0; i < changed.size(); i++) {
+			int[] change = changed.get(i);
+			int x = change[0];
+			int y = change[1];
+			if (x < 0 || y < 0 || x >= width || y >= height || isBlocked(x, y) == (change[2] != 0)) {
+				continue;
+			}
+			int cell = y * width + x;
+			blocked[cell >>> 6] ^= 1L << cell;
+			if (change[2] != 0) {
+				g[cell] = INFINITY;
+			}
+			updateCell(cell);
+			updateNeighbors(cell);
+		}
+	}
+
+	// recomputes rhs of a cell from its neighbors and puts it in the queue if
+	// it is now inconsistent
+	private void updateCell(int cell) {
+		if (cell != goal) {
+			int best = INFINITY;
+			int x = cell % width;
+			int y = cell / width;
+			if (!isBlocked(x, y)) {
+				for (int d = 0; d < 4; d++) {
+					if (!isBlocked(x + DX[d], y + DY[d])) {
+						best = Math.min(best, g[cell + DY[d] * width + DX[d]] + 1);
+					}
+				}
+			}
+			rhs[cell] = Math.min(best, INFINITY);
+		}
+		if (g[cell] != rhs[cell]) {
+			open.addOrUpdate(cell, key(cell));
+		} else if (open.contains(cell)) {
+			open.remove(cell);
+		}
+	}
+
+	private void updateNeighbors(int cell) {
+		int x = cell % width;
+		int y = cell / width;
+		for (int d = 0; d < 4; d++) {
+			if (!isBlocked(x + DX[d], y + DY[d])) {
+				updateCell(cell + DY[d] * width + DX[d]);
+			}
+		}
+	}
+
+	// expands inconsistent cells in key order until the start is consistent and
+	// nothing in the queue could still lower its distance
+	private void computeShortestPath() {
+		while (!open.isEmpty() && (open.peekKey() < key(start) || rhs[start] != g[start])) {
+			stats.frontier(open.size());
+			int cell = open.peek();
+			long oldKey = open.peekKey();
+			long newKey = key(cell);
+			if (oldKey < newKey) {
+				// the start moved since this key was computed
+				open.update(cell, newKey);
+				continue;
+			}
+			stats.expansions++;
+			open.poll();
+			if (g[cell] > rhs[cell]) {
+				// overconsistent: the cell got closer to the goal
+				g[cell] = rhs[cell];
+				updateNeighbors(cell);
+			} else {
+				// underconsistent: the cell got further away, so it and everything
+				// that relied on it have to be looked at again
+				g[cell] = INFINITY;
+				updateCell(cell);
+				updateNeighbors(cell);
+			}
+		}
+	}
+
+	// queue key: min(g, rhs) + distance from the start + km in the high half,
+	// min(g, rhs) in the low half to break ties
+	private long key(int cell) {
+		int distance = Math.min(g[cell], rhs[cell]);
+		int first = distance >= INFINITY ? INFINITY : distance + manhattan(start, cell) + km;
+		return ((long) first << 32) | distance;
+	}
+
+	private int manhattan(int a, int b) {
+		return Math.abs(a % width - b % width) + Math.abs(a / width - b / width);
+	}
+
+	public static void main(String[] args) {
+		MazeGenerator generator = new MazeGenerator(512, 512, 0.2, 1);
+		int[][] cells = generator.freeCells(2);
+		DStarLitePlanner planner = new DStarLitePlanner(generator.getMaze(), cells[0][0], cells[0][1],
+				cells[1][0], cells[1][1]);
+
+		long started = System.nanoTime();
+		int[] path = planner.plan();
+		System.out.printf("first plan: %d cells, %d expansions, %.1f ms%n", path.length,
+				planner.getLastSearchStats().getExpansions(), (System.nanoTime() - started) / 1e6);
+
+		// drive along the path; every few steps a door closes on the cell just
+		// ahead and the robot replans around it
+		ArrayList<int[]> changes = new ArrayList<int[]>();
+		for (int round = 0; round < 5 && path != null && path.length > 12; round++) {
+			planner.moveStart(path[5] % planner.width, path[5] / planner.width);
+			int door = path[10];
+			changes.clear();
+			changes.add(new int[] {door % planner.width, door / planner.width, 1});
+			planner.updateCells(changes);
+			started = System.nanoTime();
+			path = planner.plan();
+			System.out.printf("door at (%d,%d): %s, %d expansions, %.1f us%n", door % planner.width,
+					door / planner.width, path == null ? "no path" : path.length + " cells",
+					planner.getLastSearchStats().getExpansions(), (System.nanoTime() - started) / 1e3);
+		}
+	}
+}
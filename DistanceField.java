@@ -0,0 +1,150 @@
+// This is the distance from every cell of a maze to one goal, computed with a
+// single breadth first search out of the goal (moves are reversible, so this
+// is also the distance from every cell to the goal). Any robot heading for
+// that goal can then read its next move off the table instead of running a
+// search of its own: the next cell is a neighbor one step closer.
+//
+// Optionally the field also keeps a flow direction per cell, one byte
+// naming the neighbor to move to, so a move is a single lookup instead of a
+// look at the four neighbors. Like a Maze a field never changes once built,
+// so robots on any number of threads can share it.
+
+package mazeworld;
+
+public class DistanceField {
+
+	// above this many cells the search runs level by level on the ForkJoinPool
+	private static final int PARALLEL_CELLS = 1 << 20;
+
+	// the flow directions, in the order down, up, right, left
+	private static final int[] DX = { 0, 0, 1, -1 };
+	private static final int[] DY = { 1, -1, 0, 0 };
+	private static final byte NONE = -1;
+
+	private final int width, height;
+	private final long mazeChecksum;   // checksum of the maze the field was computed on
+	private final int goal;
+	private final int[] distance;      // moves to the goal, -1 if the goal can't be reached
+	private final byte[] flow;         // direction of the next move, NONE at the goal; null if not kept
+	private final int reached;         // cells that can reach the goal
+
+	public DistanceField(Maze maze, int goalx, int goaly) {
+		this(maze, goalx, goaly, false);
+	}
+
+	// keepFlow stores a direction byte per cell on top of the distances, which
+	// makes nextCell a single lookup
+	public DistanceField(Maze maze, int goalx, int goaly, boolean keepFlow) {
+		width = maze.getWidth();
+		height = maze.getHeight();
+		mazeChecksum = maze.checksum();
+		goal = goaly * width + goalx;
+		if (width * height >= PARALLEL_CELLS) {
+			distance = new ParallelGridBFS(maze).distancesFrom(goalx, goaly);
+		} else {
+			distance = maze.distancesFrom(goalx, goaly);
+		}
+
+		int count = 0;
+		for (int cell = 0; cell < distance.length; cell++) {
+			if (distance[cell] != -1) {
+				count++;
+			}
+		}
+		reached = count;
+
+		if (keepFlow) {
+			flow = new byte[distance.length];
+			for (int cell = 0; cell < distance.length; cell++) {
+				flow[cell] = closerDirection(cell);
+			}
+		} else {
+			flow = null;
+		}
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public int getGoalX() {
+		return goal % width;
+	}
+
+	public int getGoalY() {
+		return goal / width;
+	}
+
+	public boolean hasFlow() {
+		return flow != null;
+	}
+
+	// number of cells from which the goal can be reached, the goal included
+	public int getReachedCount() {
+		return reached;
+	}
+
+	// was this field computed on a maze with these barriers
+	public boolean matches(Maze maze) {
+		return maze.getWidth() == width && maze.getHeight() == height && maze.checksum() == mazeChecksum;
+	}
+
+	// moves from (x,y) to the goal, or -1 if the goal can't be reached from there
+	public int getDistance(int x, int y) {
+		if (x < 0 || y < 0 || x >= width || y >= height) {
+			return -1;
+		}
+		return distance[y * width + x];
+	}
+
+	// the cell (y * width + x) to move to from (x,y) to get one step closer to
+	// the goal, or -1 at the goal and where the goal can't be reached
+	public int nextCell(int x, int y) {
+		if (x < 0 || y < 0 || x >= width || y >= height) {
+			return -1;
+		}
+		int cell = y * width + x;
+		int direction = flow != null ? flow[cell] : closerDirection(cell);
+		if (direction == NONE) {
+			return -1;
+		}
+		return cell + DY[direction] * width + DX[direction];
+	}
+
+	// the cells from (x,y) to the goal, both included, or null if the goal
+	// can't be reached from (x,y)
+	public int[] pathFrom(int x, int y) {
+		int d = getDistance(x, y);
+		if (d == -1) {
+			return null;
+		}
+		int[] path = new int[d + 1];
+		path[0] = y * width + x;
+		for (int i = 1; i < path.length; i++) {
+			path[i] = nextCell(path[i - 1] % width, path[i - 1] / width);
+		}
+		return path;
+	}
+
+	// the first neighbor, in flow order, that is one step closer to the goal
+	private byte closerDirection(int cell) {
+		int d = distance[cell];
+		if (d <= 0) {
+			return NONE;
+		}
+		int x = cell % width;
+		int y = cell / width;
+		for (int direction = 0; direction < 4; direction++) {
+			int nx = x + DX[direction];
+			int ny = y + DY[direction];
+			if (nx >= 0 && ny >= 0 && nx < width && ny < height && distance[ny * width + nx] == d - 1) {
+				return (byte) direction;
+			}
+		}
+		return NONE;
+	}
+}
@@ -0,0 +1,186 @@
+// This keeps the distance fields of the goals robots head for most, so robots
+// sharing a goal (a dock, a charger) share one breadth first search instead of
+// each running its own. Fields are kept per goal cell in an access ordered
+// LinkedHashMap, which drops the least recently used one when the cache is
+// full.
+//
+// A Maze never changes, so changed barriers come in as a new Maze. The cache
+// remembers the maze its fields belong to; when it is asked about a different
+// one with other barriers (compared by checksum, so an equal copy keeps the
+// fields) every field is dropped.
+//
+// Robots on several threads can share a cache. The map, the maze and the
+// counters are guarded by the cache's lock, but a field is computed outside
+// it: the first thread to miss a goal puts a FutureTask for the field in the
+// map and runs it after letting go of the lock. Other threads asking for the
+// same goal wait for that task, and threads asking for other goals don't wait
+// at all. A field whose search failed is taken out again, so the next request
+// for its goal tries again.
+
+package mazeworld;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+public class DistanceFieldCache {
+
+	private final int capacity;
+	private final boolean keepFlow;
+	private final LinkedHashMap<Integer, FutureTask<DistanceField>> fields;
+	private Maze maze;                  // the maze the cached fields belong to
+	private long mazeChecksum;
+	private long hits, misses, invalidations;
+
+	// capacity is the number of goals kept; keepFlow is passed on to the fields
+	public DistanceFieldCache(final int capacity, boolean keepFlow) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("capacity must be at least 1, was " + capacity);
+		}
+		this.capacity = capacity;
+		this.keepFlow = keepFlow;
+		fields = new LinkedHashMap<Integer, FutureTask<DistanceField>>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, FutureTask<DistanceField>> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	// the field of the goal (goalx, goaly) on m, computed now if it isn't cached
+	// or waited for if another thread is computing it
+	public DistanceField get(final Maze m, final int goalx, final int goaly) {
+		Integer goal = goaly * m.getWidth() + goalx;
+		FutureTask<DistanceField> task;
+		boolean computeHere = false;
+		synchronized (this) {
+			useMaze(m);
+			task = fields.get(goal);
+			if (task != null) {
+				hits++;
+			} else {
+				misses++;
+				task = new FutureTask<DistanceField>(new Callable<DistanceField>() {
+					public DistanceField call() {
+						return new DistanceField(m, goalx, goaly, keepFlow);
+					}
+				});
+				fields.put(goal, task);
+				computeHere = true;
+			}
+		}
+		if (computeHere) {
+			task.run();
+		}
+		try {
+			return task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("interrupted while waiting for the field of " + goalx + "," + goaly, e);
+		} catch (ExecutionException e) {
+			synchronized (this) {
+				fields.remove(goal, task);
+			}
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException(cause);
+		}
+	}
+
+	// the next cell for a robot at (x,y) heading for (goalx, goaly), or -1 if
+	// it is at the goal or can't reach it. See DistanceField.nextCell
+	public int nextCell(Maze m, int x, int y, int goalx, int goaly) {
+		return get(m, goalx, goaly).nextCell(x, y);
+	}
+
+	// drops every field, e.g. when the caller knows barriers changed
+	public synchronized void invalidate() {
+		if (!fields.isEmpty()) {
+			invalidations++;
+		}
+		fields.clear();
+		maze = null;
+	}
+
+	public synchronized int size() {
+		return fields.size();
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getInvalidations() {
+		return invalidations;
+	}
+
+	// switches to m, dropping the fields if its barriers differ from the
+	// current maze's. The same maze object is the common case and costs nothing
+	private void useMaze(Maze m) {
+		if (m == maze) {
+			return;
+		}
+		long checksum = m.checksum();
+		if (maze != null && !fields.isEmpty() && (m.getWidth() != maze.getWidth()
+				|| m.getHeight() != maze.getHeight() || checksum != mazeChecksum)) {
+			invalidations++;
+			fields.clear();
+		}
+		maze = m;
+		mazeChecksum = checksum;
+	}
+
+	public static void main(String[] args) {
+		// 1000 robots driving to 4 chargers on a 256x256 map
+		MazeGenerator generator = new MazeGenerator(256, 256, 0.2, 1);
+		Maze maze = generator.getMaze();
+		int[][] chargers = generator.freeCells(4);
+		ArrayList<int[]> robots = new ArrayList<int[]>();
+		for (int i = 0; i < 1000; i++) {
+			robots.add(generator.freeCells(1)[0]);
+		}
+
+		long started = System.nanoTime();
+		int searched = 0;
+		for (int i = 0; i < robots.size(); i++) {
+			int[] robot = robots.get(i);
+			int[] charger = chargers[i % chargers.length];
+			SingleRobotMazeworldProblem problem = new SingleRobotMazeworldProblem(maze, charger[0], charger[1],
+					robot[0], robot[1]);
+			if (problem.packedAStarSearch() != null) {
+				searched++;
+			}
+		}
+		System.out.printf("a search per robot: %d paths, %.1f ms%n", searched, (System.nanoTime() - started) / 1e6);
+
+		DistanceFieldCache cache = new DistanceFieldCache(8, true);
+		started = System.nanoTime();
+		int moved = 0;
+		for (int i = 0; i < robots.size(); i++) {
+			int[] robot = robots.get(i);
+			int[] charger = chargers[i % chargers.length];
+			DistanceField field = cache.get(maze, charger[0], charger[1]);
+			if (field.pathFrom(robot[0], robot[1]) != null) {
+				moved++;
+			}
+		}
+		System.out.printf("shared fields:      %d paths, %.1f ms, %d fields computed%n", moved,
+				(System.nanoTime() - started) / 1e6, cache.getMisses());
+	}
+}
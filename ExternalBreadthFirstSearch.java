@@ -0,0 +1,760 @@
+// This is a breadth first search for state spaces too big for the visited
+// table to fit in memory, such as exhaustive reachability over the joint
+// states of many robots. It works a layer (all states at one depth) at a time
+// and keeps the layers in files of sorted packed states, read and written
+// through memory mapped windows. The successors of a layer are collected in
+// memory up to a fixed run size, sorted and written out as runs; the runs are
+// then merged into the next layer, dropping duplicates and every state that is
+// already in the current or the previous layer.
+//
+// A state is a record of a fixed number of longs: one for problems with a
+// PackedStateSpace, words() for the wide encoding of bigger fleets. Records
+// are ordered word by word, the first word first.
+//
+// Checking only the two latest layers is enough because every move in these
+// problems can be undone: a successor of a state at depth d is at depth d - 1,
+// d or d + 1. The same fact rebuilds the path: the parent of a state in layer
+// d is one of its successors that is in layer d - 1.
+//
+// A layer file only gets its final name once it is complete, so after a
+// crash the search picks up from the last complete layer. The directory also
+// holds a header with the record width, the problem's checksum (maze, start
+// and goal) and its start state; layers are only resumed when the header
+// matches the problem.
+
+package mazeworld;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ExternalBreadthFirstSearch {
+
+	private static final int WINDOW = 1 << 23;   // bytes mapped at a time
+	private static final int FILE_MAGIC = 0x45424632;   // "EBF2"
+
+	private UUSearchProblem.WideStateSpace space;
+	private int words;                            // longs per state
+	private String problemName;
+	private File directory;
+	private int runSize = 1 << 20;                // states sorted in memory per run
+	private ArrayList<Long> layerSizes = new ArrayList<Long>();
+	private boolean goalFound;
+	private long[] goalState;
+	private SearchStats stats;
+
+	// the layer files of the problem's search go in directory, which is
+	// created if needed. A directory that already holds layers of a search
+	// of the same problem is resumed; layers of another problem make the
+	// searches throw an IOException until deleteFiles clears them
+	public ExternalBreadthFirstSearch(UUSearchProblem problem, File dir) {
+		UUSearchProblem.PackedStateSpace packed = problem.getPackedStateSpace();
+		space = packed != null ? UUSearchProblem.widen(packed) : problem.getWideStateSpace();
+		if (space == null) {
+			throw new UnsupportedOperationException(problem.getClass().getSimpleName() + " has no packed state encoding");
+		}
+		words = space.words();
+		goalState = new long[words];
+		problemName = problem.getClass().getSimpleName();
+		directory = dir;
+	}
+
+	// how many successors are sorted in memory before they go to a run file.
+	// Memory use is about 8 bytes per word of a state (plus 8 more for wide
+	// states) of the run size
+	public ExternalBreadthFirstSearch setRunSize(int states) {
+		if (states < 1) {
+			throw new IllegalArgumentException("run size must be positive, was " + states);
+		}
+		runSize = states;
+		return this;
+	}
+
+	// searches layer by layer until a layer holds the goal and returns the
+	// path goal first, like the other searches, or null if the goal can't be
+	// reached
+	public List<UUSearchProblem.UUSearchNode> search() throws IOException {
+		int depth = run(true);
+		if (!goalFound) {
+			stats.finish(0, false);
+			return null;
+		}
+		List<UUSearchProblem.UUSearchNode> path = backchain(depth);
+		stats.finish(path.size(), true);
+		return path;
+	}
+
+	// visits every reachable state, goal or not, and returns how many there are
+	public long exploreAll() throws IOException {
+		run(false);
+		stats.finish(0, false);
+		return getStatesReached();
+	}
+
+	public int getLayerCount() {
+		return layerSizes.size();
+	}
+
+	// the number of states at the given depth
+	public long getLayerSize(int depth) {
+		return layerSizes.get(depth);
+	}
+
+	public long getStatesReached() {
+		long total = 0;
+		for (int d = 0; d < layerSizes.size(); d++) {
+			total += layerSizes.get(d);
+		}
+		return total;
+	}
+
+	// longs per state in the layer files
+	public int getStateWords() {
+		return words;
+	}
+
+	public SearchStats getLastSearchStats() {
+		return stats;
+	}
+
+	// removes the layer files and the header
+	public void deleteFiles() {
+		File[] files = directory.listFiles();
+		if (files != null) {
+			for (int i = 0; i < files.length; i++) {
+				if (files[i].getName().startsWith("layer-") || files[i].getName().startsWith("run-")
+						|| files[i].getName().startsWith("header")) {
+					files[i].delete();
+				}
+			}
+		}
+		layerSizes.clear();
+	}
+
+	// resumes or starts the search and adds layers until the goal turns up
+	// (if stopAtGoal) or a layer is empty. Returns the depth of the goal's
+	// layer, or else of the last layer
+	private int run(boolean stopAtGoal) throws IOException {
+		stats = new SearchStats(problemName, "external-bfs");
+		goalFound = false;
+		int depth = resume();
+		if (stopAtGoal) {
+			// the layers from an earlier run may already hold it
+			for (int d = 0; d <= depth; d++) {
+				if (findGoal(d)) {
+					return d;
+				}
+			}
+		}
+		while (!(stopAtGoal && goalFound) && layerSizes.get(depth) > 0) {
+			expand(depth, stopAtGoal);
+			depth++;
+		}
+		return depth;
+	}
+
+	// finds the complete layers already in the directory, or writes the header
+	// and layer 0, and returns the depth of the last one. Leftovers of an
+	// unfinished layer are deleted
+	private int resume() throws IOException {
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("can't create " + directory);
+		}
+		File[] files = directory.listFiles();
+		for (int i = 0; i < files.length; i++) {
+			if (files[i].getName().startsWith("run-") || files[i].getName().endsWith(".tmp")) {
+				files[i].delete();
+			}
+		}
+
+		layerSizes.clear();
+		while (layerFile(layerSizes.size()).exists()) {
+			layerSizes.add(layerFile(layerSizes.size()).length() / (8L * words));
+		}
+		long[] start = new long[words];
+		space.startState(start);
+		if (layerSizes.isEmpty()) {
+			writeHeader(start);
+			LayerWriter writer = new LayerWriter(tempFile(0), 1, words);
+			writer.add(start, 0);
+			publish(writer, 0);
+		} else {
+			checkHeader(start);
+			if (layerSizes.get(0) != 1 || !contains(0, start)) {
+				throw new IOException(directory + " holds a search from a different start");
+			}
+		}
+		stats.peakVisited = getStatesReached();
+		return layerSizes.size() - 1;
+	}
+
+	// the header goes in place the same way a layer does, through a temp file
+	private void writeHeader(long[] start) throws IOException {
+		File temp = new File(directory, "header.bin.tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+		try {
+			out.writeInt(FILE_MAGIC);
+			out.writeInt(words);
+			out.writeLong(space.checksum());
+			for (int w = 0; w < words; w++) {
+				out.writeLong(start[w]);
+			}
+		} finally {
+			out.close();
+		}
+		File header = headerFile();
+		if ((header.exists() && !header.delete()) || !temp.renameTo(header)) {
+			throw new IOException("can't rename " + temp);
+		}
+	}
+
+	// throws an IOException unless the header says the layers belong to this
+	// problem. Layers without a header can't be told apart, so they don't
+	private void checkHeader(long[] start) throws IOException {
+		File header = headerFile();
+		if (!header.exists()) {
+			throw new IOException(directory + " holds layers without a header");
+		}
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(header)));
+		try {
+			if (in.readInt() != FILE_MAGIC) {
+				throw new IOException(header + " is not a search header");
+			}
+			if (in.readInt() != words || in.readLong() != space.checksum()) {
+				throw new IOException(directory + " holds a search of a different problem");
+			}
+			for (int w = 0; w < words; w++) {
+				if (in.readLong() != start[w]) {
+					throw new IOException(directory + " holds a search of a different problem");
+				}
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	// scans a layer for the goal
+	private boolean findGoal(int depth) throws IOException {
+		LayerReader reader = new LayerReader(layerFile(depth), words);
+		try {
+			while (reader.hasNext()) {
+				if (space.goalTest(reader.peek())) {
+					goalFound = true;
+					System.arraycopy(reader.peek(), 0, goalState, 0, words);
+					return true;
+				}
+				reader.advance();
+			}
+			return false;
+		} finally {
+			reader.close();
+		}
+	}
+
+	// writes layer depth + 1: the successors of layer depth, sorted into runs,
+	// then merged without duplicates or states of layers depth and depth - 1
+	private void expand(int depth, boolean stopAtGoal) throws IOException {
+		RunWriter runs = new RunWriter(depth + 1);
+		LayerReader layer = new LayerReader(layerFile(depth), words);
+		try {
+			while (layer.hasNext()) {
+				// the heuristic is not needed, so the sink's heuristics are ignored
+				space.forEachSuccessor(layer.peek(), 0, runs);
+				layer.advance();
+				stats.expansions++;
+			}
+		} catch (UncheckedIOException e) {
+			// a run that failed to write from inside the sink
+			throw e.getCause();
+		} finally {
+			layer.close();
+		}
+		runs.flush();
+		stats.peakFrontier = Math.max(stats.peakFrontier, layerSizes.get(depth));
+
+		LayerReader[] readers = new LayerReader[runs.files.size()];
+		RunHeap heads = new RunHeap(readers);
+		LayerReader current = new LayerReader(layerFile(depth), words);
+		LayerReader previous = depth > 0 ? new LayerReader(layerFile(depth - 1), words) : null;
+		LayerWriter writer = new LayerWriter(tempFile(depth + 1), runs.written, words);
+		try {
+			for (int i = 0; i < readers.length; i++) {
+				readers[i] = new LayerReader(runs.files.get(i), words);
+				if (readers[i].hasNext()) {
+					heads.add(i);
+				}
+			}
+			boolean first = true;
+			long[] last = new long[words];
+			while (!heads.isEmpty()) {
+				LayerReader run = readers[heads.peek()];
+				long[] state = run.peek();
+				if (!first && compare(state, 0, last, 0, words) == 0) {
+					stats.duplicates++;
+				} else if (current.skipTo(state) || (previous != null && previous.skipTo(state))) {
+					first = false;
+					System.arraycopy(state, 0, last, 0, words);
+					stats.duplicates++;
+				} else {
+					first = false;
+					System.arraycopy(state, 0, last, 0, words);
+					writer.add(state, 0);
+					if (!goalFound && stopAtGoal && space.goalTest(state)) {
+						goalFound = true;
+						System.arraycopy(state, 0, goalState, 0, words);
+					}
+				}
+				run.advance();
+				if (run.hasNext()) {
+					heads.update();
+				} else {
+					heads.poll();
+				}
+			}
+		} finally {
+			for (int i = 0; i < readers.length; i++) {
+				if (readers[i] != null) {
+					readers[i].close();
+				}
+			}
+			current.close();
+			if (previous != null) {
+				previous.close();
+			}
+		}
+		publish(writer, depth + 1);
+		for (int i = 0; i < runs.files.size(); i++) {
+			runs.files.get(i).delete();
+		}
+		stats.peakVisited = getStatesReached();
+	}
+
+	// closes a finished layer and gives it its final name
+	private void publish(LayerWriter writer, int depth) throws IOException {
+		long size = writer.close();
+		if (!tempFile(depth).renameTo(layerFile(depth))) {
+			throw new IOException("can't rename " + tempFile(depth));
+		}
+		layerSizes.add(size);
+	}
+
+	// walks back from the goal in layer depth: the parent in layer d - 1 is
+	// any successor that is in that layer, since moves can be undone
+	private List<UUSearchProblem.UUSearchNode> backchain(int depth) throws IOException {
+		long[][] states = new long[depth + 1][];
+		states[depth] = goalState.clone();
+		final ArrayList<long[]> candidates = new ArrayList<long[]>();
+		UUSearchProblem.WideSuccessorSink collect = new UUSearchProblem.WideSuccessorSink() {
+			public void accept(long[] state, int cost, int heuristic) {
+				candidates.add(Arrays.copyOf(state, words));
+			}
+		};
+		for (int d = depth; d > 0; d--) {
+			candidates.clear();
+			space.forEachSuccessor(states[d], 0, collect);
+			for (int i = 0; i < candidates.size(); i++) {
+				if (contains(d - 1, candidates.get(i))) {
+					states[d - 1] = candidates.get(i);
+					break;
+				}
+			}
+		}
+		ArrayList<UUSearchProblem.UUSearchNode> path = new ArrayList<UUSearchProblem.UUSearchNode>(depth + 1);
+		for (int d = depth; d >= 0; d--) {
+			path.add(space.toNode(states[d], d));
+		}
+		return path;
+	}
+
+	// binary search of a layer file, reading one state at a time
+	private boolean contains(int depth, long[] state) throws IOException {
+		FileChannel channel = new RandomAccessFile(layerFile(depth), "r").getChannel();
+		try {
+			int recordBytes = 8 * words;
+			ByteBuffer buffer = ByteBuffer.allocate(recordBytes);
+			long[] record = new long[words];
+			long lo = 0;
+			long hi = channel.size() / recordBytes - 1;
+			while (lo <= hi) {
+				long mid = (lo + hi) >>> 1;
+				buffer.clear();
+				while (buffer.hasRemaining()) {
+					if (channel.read(buffer, mid * recordBytes + buffer.position()) < 0) {
+						throw new IOException(layerFile(depth) + " is truncated");
+					}
+				}
+				for (int w = 0; w < words; w++) {
+					record[w] = buffer.getLong(w * 8);
+				}
+				int order = compare(record, 0, state, 0, words);
+				if (order == 0) {
+					return true;
+				} else if (order < 0) {
+					lo = mid + 1;
+				} else {
+					hi = mid - 1;
+				}
+			}
+			return false;
+		} finally {
+			channel.close();
+		}
+	}
+
+	// orders the records a[ai..ai + words) and b[bi..bi + words) word by word
+	private static int compare(long[] a, int ai, long[] b, int bi, int words) {
+		for (int w = 0; w < words; w++) {
+			if (a[ai + w] != b[bi + w]) {
+				return a[ai + w] < b[bi + w] ? -1 : 1;
+			}
+		}
+		return 0;
+	}
+
+	private File headerFile() {
+		return new File(directory, "header.bin");
+	}
+
+	private File layerFile(int depth) {
+		return new File(directory, String.format("layer-%05d.bin", depth));
+	}
+
+	private File tempFile(int depth) {
+		return new File(directory, String.format("layer-%05d.bin.tmp", depth));
+	}
+
+	// collects successors and writes them out as sorted runs without duplicates
+	private class RunWriter implements UUSearchProblem.WideSuccessorSink {
+
+		private long[] buffer = new long[Math.min(runSize, 1024) * words];   // grows up to the run size
+		private int count;
+		private int[] order;      // wide records are sorted by index, see sort
+		private int[] merge;
+		private int depth;
+		private ArrayList<File> files = new ArrayList<File>();
+		private long written;     // states in all the runs
+
+		public RunWriter(int d) {
+			depth = d;
+		}
+
+		public void accept(long[] state, int cost, int heuristic) {
+			stats.generated++;
+			if (count == runSize) {
+				try {
+					flush();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			} else if ((count + 1) * words > buffer.length) {
+				buffer = Arrays.copyOf(buffer, Math.min(runSize, count * 2) * words);
+			}
+			System.arraycopy(state, 0, buffer, count * words, words);
+			count++;
+		}
+
+		public void flush() throws IOException {
+			if (count == 0) {
+				return;
+			}
+			File file = new File(directory, String.format("run-%05d-%d.bin", depth, files.size()));
+			LayerWriter writer;
+			if (words == 1) {
+				Arrays.sort(buffer, 0, count);
+				int unique = 1;
+				for (int i = 1; i < count; i++) {
+					if (buffer[i] != buffer[unique - 1]) {
+						buffer[unique++] = buffer[i];
+					}
+				}
+				writer = new LayerWriter(file, unique, words);
+				for (int i = 0; i < unique; i++) {
+					writer.add(buffer, i);
+				}
+			} else {
+				sort();
+				writer = new LayerWriter(file, count, words);
+				for (int i = 0; i < count; i++) {
+					if (i == 0 || compare(buffer, order[i] * words, buffer, order[i - 1] * words, words) != 0) {
+						writer.add(buffer, order[i] * words);
+					}
+				}
+			}
+			written += writer.close();
+			files.add(file);
+			count = 0;
+		}
+
+		// sorts the indexes of the buffered records into order with a bottom up
+		// merge sort, so the records themselves never move
+		private void sort() {
+			if (order == null || order.length < count) {
+				order = new int[buffer.length / words];
+				merge = new int[order.length];
+			}
+			for (int i = 0; i < count; i++) {
+				order[i] = i;
+			}
+			for (int width = 1; width < count; width *= 2) {
+				for (int lo = 0; lo < count - width; lo += 2 * width) {
+					int middle = lo + width;
+					int hi = Math.min(lo + 2 * width, count);
+					int i = lo;
+					int j = middle;
+					int k = lo;
+					while (i < middle && j < hi) {
+						if (compare(buffer, order[j] * words, buffer, order[i] * words, words) < 0) {
+							merge[k++] = order[j++];
+						} else {
+							merge[k++] = order[i++];
+						}
+					}
+					while (i < middle) {
+						merge[k++] = order[i++];
+					}
+					while (j < hi) {
+						merge[k++] = order[j++];
+					}
+					System.arraycopy(merge, lo, order, lo, hi - lo);
+				}
+			}
+		}
+	}
+
+	// a binary heap of run readers ordered by the state each one reads next
+	private static class RunHeap {
+
+		private LayerReader[] readers;
+		private int[] heap;
+		private int size;
+
+		public RunHeap(LayerReader[] r) {
+			readers = r;
+			heap = new int[r.length];
+		}
+
+		public boolean isEmpty() {
+			return size == 0;
+		}
+
+		// the run with the smallest next state
+		public int peek() {
+			return heap[0];
+		}
+
+		public void add(int run) {
+			int i = size++;
+			heap[i] = run;
+			while (i > 0 && less(heap[i], heap[(i - 1) / 2])) {
+				swap(i, (i - 1) / 2);
+				i = (i - 1) / 2;
+			}
+		}
+
+		public int poll() {
+			int top = heap[0];
+			heap[0] = heap[--size];
+			siftDown();
+			return top;
+		}
+
+		// puts the top run back in place after it moved on to its next state
+		public void update() {
+			siftDown();
+		}
+
+		private void siftDown() {
+			int i = 0;
+			while (true) {
+				int smallest = i;
+				int left = 2 * i + 1;
+				if (left < size && less(heap[left], heap[smallest])) {
+					smallest = left;
+				}
+				if (left + 1 < size && less(heap[left + 1], heap[smallest])) {
+					smallest = left + 1;
+				}
+				if (smallest == i) {
+					return;
+				}
+				swap(i, smallest);
+				i = smallest;
+			}
+		}
+
+		private boolean less(int a, int b) {
+			return compare(readers[a].peek(), 0, readers[b].peek(), 0, readers[a].peek().length) < 0;
+		}
+
+		private void swap(int i, int j) {
+			int t = heap[i];
+			heap[i] = heap[j];
+			heap[j] = t;
+		}
+	}
+
+	// appends states to a file through mapped windows
+	private static class LayerWriter {
+
+		private FileChannel channel;
+		private MappedByteBuffer window;
+		private int words;
+		private long written;
+		private long capacity;
+
+		// capacity is the most states that will be added. Windows are never
+		// mapped past it, since mapping grows the file, and hold whole states
+		public LayerWriter(File file, long c, int w) throws IOException {
+			capacity = c;
+			words = w;
+			RandomAccessFile raf = new RandomAccessFile(file, "rw");
+			raf.setLength(0);
+			channel = raf.getChannel();
+		}
+
+		// writes the state in record[from..from + words)
+		public void add(long[] record, int from) throws IOException {
+			if (window == null || !window.hasRemaining()) {
+				if (window != null) {
+					window.force();
+				}
+				long states = Math.min(WINDOW / (8 * words), capacity - written);
+				window = channel.map(FileChannel.MapMode.READ_WRITE, written * 8 * words, states * 8 * words);
+			}
+			for (int w = 0; w < words; w++) {
+				window.putLong(record[from + w]);
+			}
+			written++;
+		}
+
+		// cuts the file to what was written, makes sure it is on disk and
+		// returns the number of states
+		public long close() throws IOException {
+			if (window != null) {
+				window.force();
+				window = null;
+			}
+			channel.truncate(written * 8 * words);
+			channel.force(true);
+			channel.close();
+			return written;
+		}
+	}
+
+	// reads the states of a file in order through mapped windows
+	private static class LayerReader {
+
+		private FileChannel channel;
+		private MappedByteBuffer window;
+		private long position;     // file offset of the next window
+		private long remaining;    // states not yet read into head
+		private long[] head;
+		private boolean hasHead;
+
+		public LayerReader(File file, int words) throws IOException {
+			channel = new RandomAccessFile(file, "r").getChannel();
+			head = new long[words];
+			remaining = channel.size() / (8 * words);
+			advance();
+		}
+
+		public boolean hasNext() {
+			return hasHead;
+		}
+
+		// the next state. The array is reused for the state after it
+		public long[] peek() {
+			return head;
+		}
+
+		// moves past every state below target and says whether target is next
+		public boolean skipTo(long[] target) throws IOException {
+			int order;
+			while (hasHead && (order = compare(head, 0, target, 0, head.length)) <= 0) {
+				if (order == 0) {
+					return true;
+				}
+				advance();
+			}
+			return false;
+		}
+
+		public void close() throws IOException {
+			window = null;
+			channel.close();
+		}
+
+		public void advance() throws IOException {
+			if (remaining == 0) {
+				hasHead = false;
+				return;
+			}
+			if (window == null || !window.hasRemaining()) {
+				long size = Math.min(WINDOW / (8 * head.length), remaining) * 8 * head.length;
+				window = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+				position += size;
+			}
+			for (int w = 0; w < head.length; w++) {
+				head[w] = window.getLong();
+			}
+			remaining--;
+			hasHead = true;
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		// every joint state three robots can reach on a small maze, then a path
+		File directory = new File(System.getProperty("java.io.tmpdir"), "mazeworld-external-bfs");
+		MazeGenerator generator = new MazeGenerator(8, 8, 0.2, 3);
+		int[][] cells = generator.freeCells(6);
+		MultiRobotMazeworldProblem problem = new MultiRobotMazeworldProblem(generator.getMaze(),
+				Arrays.copyOfRange(cells, 3, 6), Arrays.copyOfRange(cells, 0, 3));
+
+		ExternalBreadthFirstSearch search = new ExternalBreadthFirstSearch(problem, directory).setRunSize(1 << 14);
+		search.deleteFiles();
+		long reached = search.exploreAll();
+		System.out.println(reached + " joint states in " + search.getLayerCount() + " layers");
+		System.out.println(search.getLastSearchStats().toJson());
+
+		// the layers are still on disk, so the search starts where exploreAll left off
+		List<UUSearchProblem.UUSearchNode> path = search.search();
+		System.out.println(path == null ? "no path" : (path.size() - 1) + " moves");
+		System.out.println(search.getLastSearchStats().toJson());
+		search.deleteFiles();
+
+		// six robots on a 64x64 map need 72 bits, so their states take two
+		// longs. Only a 4x2 pocket is open, which keeps the layers small
+		ArrayList<int[]> barriers = new ArrayList<int[]>();
+		for (int y = 0; y < 64; y++) {
+			for (int x = 0; x < 64; x++) {
+				if (x >= 4 || y >= 2) {
+					barriers.add(new int[] { x, y });
+				}
+			}
+		}
+		problem = new MultiRobotMazeworldProblem(64, 64,
+				new int[][] { { 3, 1 }, { 2, 1 }, { 1, 1 }, { 0, 1 }, { 3, 0 }, { 2, 0 } },
+				new int[][] { { 0, 0 }, { 1, 0 }, { 2, 0 }, { 3, 0 }, { 0, 1 }, { 1, 1 } },
+				barriers.toArray(new int[0][]));
+		search = new ExternalBreadthFirstSearch(problem, directory);
+		search.deleteFiles();
+		path = search.search();
+		System.out.println(search.getStateWords() + " longs per state, "
+				+ (path == null ? "no path" : (path.size() - 1) + " moves"));
+		System.out.println(search.getLastSearchStats().toJson());
+		search.deleteFiles();
+	}
+}
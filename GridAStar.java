@@ -0,0 +1,222 @@
+// This is the packed search engine for a single robot on a grid. A state is
+// one int, the cell index (y * width + x), and the visited flags, parents and
+// path costs live in flat int arrays indexed by cell, so a search does not
+// allocate a node or box an integer per expanded cell. The arrays are stamped
+// with a search number instead of being cleared, so one engine can be reused
+// for many queries on the same maze.
+
+package mazeworld;
+
+import java.util.Arrays;
+
+public class GridAStar {
+
+	private Maze maze;
+	private int width, height;
+
+	private int[] cost;      // path cost from the start, valid if seen[cell] == stamp
+	private int[] parent;    // previous cell on the best known path, -1 for the start
+	private int[] seen;      // search number in which the cell was last reached
+	private int stamp;
+
+	private LandmarkHeuristic landmarks;   // null means the manhattan distance
+	private IndexedIntHeap open;
+	private int[] queue;     // bfs queue, allocated the first time bfs is used
+	private SearchStats stats;
+	private int reached;     // cells reached in the current search
+
+	public GridAStar(Maze m) {
+		maze = m;
+		width = m.getWidth();
+		height = m.getHeight();
+		int cells = width * height;
+		cost = new int[cells];
+		parent = new int[cells];
+		seen = new int[cells];
+		open = new IndexedIntHeap(cells);
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	// pack a coordinate into a cell index
+	public int cellOf(int x, int y) {
+		return y * width + x;
+	}
+
+	// use landmark (ALT) lower bounds instead of the manhattan distance. The 
+	// tables must have been computed for this maze. null goes back to manhattan
+	public void setLandmarks(LandmarkHeuristic l) {
+		if (l != null && !l.matches(maze)) {
+			throw new IllegalArgumentException("landmark tables belong to a different maze");
+		}
+		landmarks = l;
+	}
+
+	// A* from start to goal with the manhattan (or landmark) heuristic. Returns the cells of
+	// the path in order from start to goal, or null if the goal can't be reached.
+	// Ties on f are broken towards the lower heuristic (deeper) cell.
+	public int[] aStar(int start, int goal) {
+		newSearch("astar");
+
+		reach(start, -1, 0);
+		open.add(start, key(0, heuristic(start, goal)));
+
+		while (!open.isEmpty()) {
+			stats.frontier(open.size());
+			int current = open.poll();
+			if (current == goal) {
+				return tracePath(goal);
+			}
+			stats.expansions++;
+			int x = current % width;
+			int y = current / width;
+			int newCost = cost[current] + 1;
+
+			// same move order as MazeWorldNode: up, down, right, left
+			if (y + 1 < height) { relax(current, current + width, newCost, goal); }
+			if (y - 1 >= 0) { relax(current, current - width, newCost, goal); }
+			if (x + 1 < width) { relax(current, current + 1, newCost, goal); }
+			if (x - 1 >= 0) { relax(current, current - 1, newCost, goal); }
+		}
+		return finish(null);
+	}
+
+	// breadth first search from start to goal. Returns the path in order from
+	// start to goal, or null if the goal can't be reached
+	public int[] breadthFirst(int start, int goal) {
+		newSearch("bfs");
+		if (queue == null) {
+			queue = new int[width * height];
+		}
+		int head = 0;
+		int tail = 0;
+
+		reach(start, -1, 0);
+		queue[tail++] = start;
+
+		while (head < tail) {
+			stats.frontier(tail - head);
+			int current = queue[head++];
+			if (current == goal) {
+				return tracePath(goal);
+			}
+			stats.expansions++;
+			int x = current % width;
+			int y = current / width;
+			int newCost = cost[current] + 1;
+
+			if (y + 1 < height) { tail = visit(current, current + width, newCost, tail); }
+			if (y - 1 >= 0) { tail = visit(current, current - width, newCost, tail); }
+			if (x + 1 < width) { tail = visit(current, current + 1, newCost, tail); }
+			if (x - 1 >= 0) { tail = visit(current, current - 1, newCost, tail); }
+		}
+		return finish(null);
+	}
+
+	// the path cost of the last search's goal (or any cell it settled)
+	public int getCost(int cell) {
+		return cost[cell];
+	}
+
+	// the stats of the most recent search
+	public SearchStats getLastSearchStats() {
+		return stats;
+	}
+
+	private void relax(int from, int to, int newCost, int goal) {
+		if (isBlocked(to)) {
+			return;
+		}
+		stats.generated++;
+		if (seen[to] != stamp) {
+			reach(to, from, newCost);
+			open.add(to, key(newCost, heuristic(to, goal)));
+			return;
+		}
+		stats.duplicates++;
+		if (newCost < cost[to]) {
+			if (!open.contains(to)) {
+				stats.reopened++;
+			}
+			reach(to, from, newCost);
+			open.addOrUpdate(to, key(newCost, heuristic(to, goal)));
+		}
+	}
+
+	private int visit(int from, int to, int newCost, int tail) {
+		if (isBlocked(to)) {
+			return tail;
+		}
+		stats.generated++;
+		if (seen[to] != stamp) {
+			reach(to, from, newCost);
+			queue[tail++] = to;
+		} else {
+			stats.duplicates++;
+		}
+		return tail;
+	}
+
+	private void reach(int cell, int from, int c) {
+		if (seen[cell] != stamp) {
+			reached++;
+		}
+		seen[cell] = stamp;
+		parent[cell] = from;
+		cost[cell] = c;
+	}
+
+	private boolean isBlocked(int cell) {
+		return maze.isBlocked(cell);
+	}
+
+	private int heuristic(int cell, int goal) {
+		if (landmarks != null) {
+			return landmarks.estimate(cell, goal);
+		}
+		return Math.abs(goal % width - cell % width) + Math.abs(goal / width - cell / width);
+	}
+
+	// f in the high half so it dominates, h in the low half to break ties
+	private static long key(int c, int h) {
+		return ((long) (c + h) << 32) | h;
+	}
+
+	// walk the parents once to count, then fill the array from the back so
+	// the result comes out in start to goal order without a reverse copy
+	private int[] tracePath(int goal) {
+		int length = 0;
+		for (int cell = goal; cell != -1; cell = parent[cell]) {
+			length++;
+		}
+		int[] path = new int[length];
+		for (int cell = goal; cell != -1; cell = parent[cell]) {
+			path[--length] = cell;
+		}
+		return finish(path);
+	}
+
+	private int[] finish(int[] path) {
+		stats.visited(reached);
+		stats.finish(path == null ? 0 : path.length, path != null);
+		return path;
+	}
+
+	private void newSearch(String search) {
+		stats = new SearchStats("GridAStar", search);
+		reached = 0;
+		open.clear();
+		stamp++;
+		if (stamp == 0) {
+			// the stamp wrapped around, so old marks could look current again
+			Arrays.fill(seen, 0);
+			stamp = 1;
+		}
+	}
+}
@@ -0,0 +1,487 @@
+// This is hash distributed A* (HDA*) over a problem's packed state space,
+// or its wide one when the states don't fit in a long. Every state belongs
+// to one worker thread, picked by a hash of the state, and only that worker
+// keeps its cost, its parent and its place in an open list. A worker expands
+// its own best open node; a successor that belongs to another worker is sent
+// to it in a batch through that worker's inbox, a lock-free queue that all
+// the others write to. The workers' open lists are not ordered with each
+// other, so a node can be expanded before its cheapest path is known; it is
+// then opened again when the cheaper path arrives.
+//
+// A goal taken off an open list becomes the incumbent if it is cheaper than
+// the one so far, and from then on nodes whose f is not below the incumbent
+// are dropped. The search is over when no worker has an open node that could
+// still beat the incumbent and no batch is in flight. With an admissible
+// heuristic the incumbent is then optimal, so the cost is the same as A*'s.
+//
+// Each worker publishes the lowest key on its open list (f, ties going to the
+// lower heuristic, as in the packed A*), and a batch lowers the receiver's
+// value as soon as it is sent. A worker whose best key is above the lowest
+// published one sends what it has and waits instead of expanding nodes that
+// A* would not have looked at yet; workers on the same key run in parallel.
+// Comparing f alone is not enough: with a good heuristic most states on a
+// path share the optimal f, and every worker would expand its share of them
+// while A* goes straight for the goal. A waiting worker parks, and is woken
+// by a batch or by a worker whose lowest key went up, so waiting doesn't take
+// a core from the workers that can go on.
+//
+// Termination is detected with a single counter of busy workers plus unread
+// batches. A sender counts a batch before it is queued and the receiver
+// becomes busy before it uncounts it, so the counter can only reach zero when
+// nothing is left to do, and it never leaves zero. A worker with nothing to
+// do parks until a batch arrives or the search is over.
+//
+// States are handled as wide states of words longs; a packed space is seen
+// as one of a single word. A batch holds a record per successor: the state,
+// its parent and cost << 32 | heuristic. Every worker works on a copy of the
+// state space, since a space builds its successors in scratch arrays.
+
+package mazeworld;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+public class HashDistributedAStar {
+
+	private static final int BATCH = 256;            // successors per message
+	private static final int FLUSH_INTERVAL = 512;   // expansions between sending part batches
+	private static final long PARK_NANOS = 1000000;  // longest park, in case a wake up is missed
+
+	private UUSearchProblem.WideStateSpace space;
+	private int words;                               // longs per state
+	private int record;                              // longs per successor in a batch
+	private String problemName;
+	private int threads;
+	private Worker[] workers;
+	private AtomicInteger work = new AtomicInteger();   // busy workers plus unread batches
+	private AtomicLongArray lowest;                     // per worker, the lowest key it has open
+	private volatile int incumbent;
+	private volatile boolean stopped;
+	private long[] goalState;
+	private Throwable failure;
+	private SearchStats stats;
+
+	public HashDistributedAStar(UUSearchProblem problem, int threadCount) {
+		UUSearchProblem.PackedStateSpace packed = problem.getPackedStateSpace();
+		space = packed != null ? UUSearchProblem.widen(packed) : problem.getWideStateSpace();
+		if (space == null) {
+			throw new UnsupportedOperationException(problem.getClass().getSimpleName() + " has no packed state encoding");
+		}
+		if (threadCount < 1) {
+			throw new IllegalArgumentException("need at least one thread, was " + threadCount);
+		}
+		problemName = problem.getClass().getSimpleName();
+		threads = threadCount;
+		words = space.words();
+		record = 2 * words + 1;
+	}
+
+	// runs the search on the worker threads and returns an optimal path goal
+	// first, or null if the goal can't be reached
+	public List<UUSearchProblem.UUSearchNode> search() {
+		stats = new SearchStats(problemName, "hda-star");
+		incumbent = Integer.MAX_VALUE;
+		goalState = null;
+		stopped = false;
+		failure = null;
+		workers = new Worker[threads];
+		lowest = new AtomicLongArray(threads);
+		for (int i = 0; i < threads; i++) {
+			workers[i] = new Worker(i);
+			lowest.set(i, Long.MAX_VALUE);
+		}
+		long[] start = new long[words];
+		space.startState(start);
+		workers[owner(start, 0)].relax(start, start, 0, 0, space.heuristic(start));
+		workers[owner(start, 0)].publishLowest();
+
+		work.set(threads);
+		Thread[] running = new Thread[threads];
+		for (int i = 0; i < threads; i++) {
+			running[i] = new Thread(workers[i], "hda-star-" + i);
+			running[i].setDaemon(true);
+			workers[i].thread = running[i];
+		}
+		for (int i = 0; i < threads; i++) {
+			running[i].start();
+		}
+		try {
+			for (int i = 0; i < threads; i++) {
+				running[i].join();
+			}
+		} catch (InterruptedException e) {
+			stopped = true;
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("interrupted while searching", e);
+		}
+		if (failure != null) {
+			throw new IllegalStateException("search worker failed", failure);
+		}
+
+		for (int i = 0; i < threads; i++) {
+			Worker w = workers[i];
+			stats.expansions += w.expansions;
+			stats.generated += w.generated;
+			stats.duplicates += w.duplicates;
+			stats.reopened += w.reopened;
+			stats.peakFrontier += w.peakOpen;
+			stats.peakVisited += w.slotCount;
+		}
+		if (goalState == null) {
+			stats.finish(0, false);
+			return null;
+		}
+		List<UUSearchProblem.UUSearchNode> path = backchain();
+		stats.finish(path.size(), true);
+		return path;
+	}
+
+	public SearchStats getLastSearchStats() {
+		return stats;
+	}
+
+	// follows the parents from the goal, each kept by the state's owner
+	private List<UUSearchProblem.UUSearchNode> backchain() {
+		ArrayList<UUSearchProblem.UUSearchNode> path = new ArrayList<UUSearchProblem.UUSearchNode>();
+		long[] start = new long[words];
+		space.startState(start);
+		long[] state = goalState;
+		while (true) {
+			Worker w = workers[owner(state, 0)];
+			int slot = w.slotOf.get(state);
+			path.add(space.toNode(state, w.costs[slot]));
+			if (Arrays.equals(state, start)) {
+				return path;
+			}
+			state = Arrays.copyOfRange(w.parents, slot * words, (slot + 1) * words);
+		}
+	}
+
+	// the worker of the state at from in states
+	private int owner(long[] states, int from) {
+		long mixed = 0;
+		for (int w = 0; w < words; w++) {
+			mixed = (mixed + states[from + w]) * 0x9E3779B97F4A7C15L;
+		}
+		return (int) ((mixed >>> 33) % threads);
+	}
+
+	private synchronized void offerGoal(long[] state, int cost) {
+		if (cost < incumbent) {
+			goalState = state.clone();
+			incumbent = cost;
+		}
+	}
+
+	private synchronized void fail(Throwable t) {
+		if (failure == null) {
+			failure = t;
+		}
+		stopped = true;
+		wakeAll();
+	}
+
+	// the search is over, let the idle workers see it
+	private void wakeAll() {
+		for (int i = 0; i < threads; i++) {
+			LockSupport.unpark(workers[i].thread);
+		}
+	}
+
+	// a worker's lowest key went up, so a waiting worker may now be the lowest
+	private void wakeIdle() {
+		for (int i = 0; i < threads; i++) {
+			if (workers[i].idle) {
+				LockSupport.unpark(workers[i].thread);
+			}
+		}
+	}
+
+	// the lowest key any worker has open, as last published
+	private long lowestOpen() {
+		long best = Long.MAX_VALUE;
+		for (int i = 0; i < threads; i++) {
+			best = Math.min(best, lowest.get(i));
+		}
+		return best;
+	}
+
+	private void lowerLowest(int worker, long key) {
+		long published = lowest.get(worker);
+		while (key < published && !lowest.compareAndSet(worker, published, key)) {
+			published = lowest.get(worker);
+		}
+	}
+
+	private static long key(int cost, int heuristic) {
+		return ((long) (cost + heuristic) << 32) | heuristic;
+	}
+
+	// one thread's share of the search: the states it owns in the same flat
+	// tables as the single threaded wide A*, its open list and its inbox
+	private class Worker implements Runnable, UUSearchProblem.WideSuccessorSink {
+
+		private int id;
+		private Thread thread;
+		private volatile boolean idle;   // parked or about to be, senders and wakeIdle wake it
+		private ConcurrentLinkedQueue<long[]> inbox = new ConcurrentLinkedQueue<long[]>();
+		private long[][] outgoing;    // per worker: records of state, parent, cost << 32 | heuristic
+		private int[] outgoingCount;
+		private long[] outgoingBest;  // per worker, the lowest key waiting to be sent
+		private UUSearchProblem.WideStateSpace view;   // this worker's copy of the space
+
+		private LongArrayIntHashMap slotOf = new LongArrayIntHashMap(words, 1024);
+		private long[] states = new long[1024 * words];
+		private long[] parents = new long[1024 * words];
+		private int[] costs = new int[1024];
+		private int[] heuristics = new int[1024];
+		private int slotCount;
+		private IndexedIntHeap open = new IndexedIntHeap(1024);
+		private long[] current = new long[words];   // state being expanded
+		private int currentCost;
+		private long[] received = new long[words];  // a state read from a batch
+
+		private long expansions, generated, duplicates, reopened, peakOpen;
+
+		public Worker(int i) {
+			id = i;
+			view = space.copy();
+			outgoing = new long[threads][BATCH * record];
+			outgoingCount = new int[threads];
+			outgoingBest = new long[threads];
+			Arrays.fill(outgoingBest, Long.MAX_VALUE);
+		}
+
+		public void run() {
+			try {
+				boolean busy = true;
+				int sinceFlush = 0;
+				while (!stopped) {
+					long[] batch = inbox.poll();
+					if (batch != null) {
+						if (!busy) {
+							work.incrementAndGet();
+							busy = true;
+						}
+						receive(batch);
+						publishLowest();
+						work.decrementAndGet();
+					} else if (busy && !open.isEmpty() && (open.peekKey() >>> 32) < incumbent) {
+						if (aboveLowest()) {
+							// another worker has better nodes. Expanding ours now
+							// would mostly be wasted, so send what we have and wait.
+							// Nodes on the same key are expanded in parallel
+							flushAll();
+							sinceFlush = 0;
+							idle = true;
+							if (inbox.isEmpty() && aboveLowest() && !stopped) {
+								LockSupport.parkNanos(this, PARK_NANOS);
+							}
+							idle = false;
+							continue;
+						}
+						peakOpen = Math.max(peakOpen, open.size());
+						expand(open.poll());
+						publishLowest();
+						if (++sinceFlush == FLUSH_INTERVAL) {
+							flushAll();
+							sinceFlush = 0;
+						} else {
+							flushBetter();
+						}
+					} else if (busy) {
+						// nothing here can beat the incumbent: send what is left
+						// (counted while still busy) and go idle
+						flushAll();
+						lowest.set(id, Long.MAX_VALUE);
+						wakeIdle();
+						busy = false;
+						if (work.decrementAndGet() == 0) {
+							wakeAll();
+						}
+					} else if (work.get() == 0) {
+						return;
+					} else {
+						// checked again after idle is set, so a batch sent in
+						// between is not slept through
+						idle = true;
+						if (inbox.isEmpty() && work.get() != 0) {
+							LockSupport.parkNanos(this, 1000000);
+						}
+						idle = false;
+					}
+				}
+			} catch (Throwable t) {
+				fail(t);
+			}
+		}
+
+		// publishes the lowest key open here, waking the waiting workers if
+		// it went up
+		private void publishLowest() {
+			long key = open.isEmpty() ? Long.MAX_VALUE : open.peekKey();
+			long before = lowest.getAndSet(id, key);
+			if (key > before) {
+				wakeIdle();
+			}
+		}
+
+		private boolean aboveLowest() {
+			return open.peekKey() > lowestOpen();
+		}
+
+		// copies the slot's state to current, since the tables may grow while
+		// its successors are added
+		private void expand(int slot) {
+			System.arraycopy(states, slot * words, current, 0, words);
+			if (view.goalTest(current)) {
+				offerGoal(current, costs[slot]);
+				return;
+			}
+			expansions++;
+			currentCost = costs[slot];
+			view.forEachSuccessor(current, heuristics[slot], this);
+		}
+
+		// a successor of the state being expanded
+		public void accept(long[] successor, int cost, int heuristic) {
+			generated++;
+			int newCost = currentCost + cost;
+			if (newCost + heuristic >= incumbent) {
+				return;
+			}
+			int to = owner(successor, 0);
+			if (to == id) {
+				relax(successor, current, 0, newCost, heuristic);
+				return;
+			}
+			long[] buffer = outgoing[to];
+			int n = outgoingCount[to];
+			System.arraycopy(successor, 0, buffer, n, words);
+			System.arraycopy(current, 0, buffer, n + words, words);
+			buffer[n + 2 * words] = ((long) newCost << 32) | (heuristic & 0xffffffffL);
+			outgoingCount[to] = n + record;
+			outgoingBest[to] = Math.min(outgoingBest[to], key(newCost, heuristic));
+			if (outgoingCount[to] == buffer.length) {
+				flush(to);
+			}
+		}
+
+		private void receive(long[] batch) {
+			for (int i = 0; i < batch.length; i += record) {
+				System.arraycopy(batch, i, received, 0, words);
+				long costAndHeuristic = batch[i + 2 * words];
+				relax(received, batch, i + words, (int) (costAndHeuristic >>> 32), (int) costAndHeuristic);
+			}
+		}
+
+		// records a path to state, from the parent at parentFrom in parents,
+		// if it is the cheapest so far and (re)opens it
+		private void relax(long[] state, long[] parent, int parentFrom, int cost, int heuristic) {
+			if (cost + heuristic >= incumbent) {
+				return;
+			}
+			int slot = slotOf.get(state);
+			if (slot == -1) {
+				if (slotCount == costs.length) {
+					states = Arrays.copyOf(states, slotCount * 2 * words);
+					parents = Arrays.copyOf(parents, slotCount * 2 * words);
+					costs = Arrays.copyOf(costs, slotCount * 2);
+					heuristics = Arrays.copyOf(heuristics, slotCount * 2);
+					open.ensureIdCapacity(slotCount * 2);
+				}
+				slot = slotCount++;
+				slotOf.put(state, slot);
+				System.arraycopy(state, 0, states, slot * words, words);
+				heuristics[slot] = heuristic;
+			} else {
+				duplicates++;
+				if (cost >= costs[slot]) {
+					return;
+				}
+				if (!open.contains(slot)) {
+					reopened++;
+				}
+			}
+			System.arraycopy(parent, parentFrom, parents, slot * words, words);
+			costs[slot] = cost;
+			open.addOrUpdate(slot, key(cost, heuristics[slot]));
+		}
+
+		// sends at once the batches holding a node better than any still open
+		// here, so the best nodes don't wait for a full batch while this 
+		// worker expands worse ones
+		private void flushBetter() {
+			long best = open.isEmpty() ? Long.MAX_VALUE : open.peekKey();
+			for (int to = 0; to < threads; to++) {
+				if (outgoingCount[to] > 0 && outgoingBest[to] < best) {
+					flush(to);
+				}
+			}
+		}
+
+		private void flushAll() {
+			for (int to = 0; to < threads; to++) {
+				if (outgoingCount[to] > 0) {
+					flush(to);
+				}
+			}
+		}
+
+		private void flush(int to) {
+			// the batch is the receiver's to expand now, even before it reads it.
+			// Lowered before the batch is queued, so the receiver's own publish
+			// after reading it can't be overwritten by a stale lower value
+			work.incrementAndGet();
+			lowerLowest(to, outgoingBest[to]);
+			workers[to].inbox.add(Arrays.copyOf(outgoing[to], outgoingCount[to]));
+			outgoingCount[to] = 0;
+			outgoingBest[to] = Long.MAX_VALUE;
+			if (workers[to].idle) {
+				LockSupport.unpark(workers[to].thread);
+			}
+		}
+	}
+
+	public static void main(String[] args) {
+		// three robots on a 24x24 map, single threaded and then on every core
+		MazeGenerator generator = new MazeGenerator(24, 24, 0.2, 5);
+		int[][] cells = generator.freeCells(6);
+		MultiRobotMazeworldProblem problem = new MultiRobotMazeworldProblem(generator.getMaze(),
+				Arrays.copyOfRange(cells, 3, 6), Arrays.copyOfRange(cells, 0, 3));
+		runOnEveryCore(problem);
+
+		// six robots on a 64x64 map need 72 bits, so their states take two
+		// longs. Only a 5x3 pocket is open, which keeps the search small
+		ArrayList<int[]> barriers = new ArrayList<int[]>();
+		for (int y = 0; y < 64; y++) {
+			for (int x = 0; x < 64; x++) {
+				if (x >= 5 || y >= 3) {
+					barriers.add(new int[] { x, y });
+				}
+			}
+		}
+		problem = new MultiRobotMazeworldProblem(64, 64,
+				new int[][] { { 4, 2 }, { 3, 2 }, { 2, 2 }, { 1, 2 }, { 0, 2 }, { 4, 1 } },
+				new int[][] { { 0, 0 }, { 1, 0 }, { 2, 0 }, { 3, 0 }, { 4, 0 }, { 0, 1 } },
+				barriers.toArray(new int[0][]));
+		runOnEveryCore(problem);
+	}
+
+	private static void runOnEveryCore(UUSearchProblem problem) {
+		int cores = Runtime.getRuntime().availableProcessors();
+		for (int threads = 1; threads <= cores; threads *= 2) {
+			HashDistributedAStar search = new HashDistributedAStar(problem, threads);
+			long started = System.nanoTime();
+			List<UUSearchProblem.UUSearchNode> path = search.search();
+			System.out.printf("%d threads: %s, %.1f ms%n", threads,
+					path == null ? "no path" : (path.size() - 1) + " moves", (System.nanoTime() - started) / 1e6);
+			System.out.println(search.getLastSearchStats().toJson());
+		}
+	}
+}
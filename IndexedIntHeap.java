@@ -0,0 +1,166 @@
+// This is an indexed binary min-heap over int ids (usually packed cell or
+// state indices) with long priorities. It is the primitive counterpart of
+// IndexedPriorityQueue: no boxing, no per-node objects, O(1) membership and
+// O(log n) decrease-key. clear() is O(1), so one heap can be reused by many
+// searches without touching the id table.
+
+package mazeworld;
+
+import java.util.Arrays;
+
+public class IndexedIntHeap {
+
+	private int[] heap;     // ids in heap order
+	private long[] keys;    // priority of the id in the same heap slot
+	private int[] slots;    // id -> heap slot (only valid while the id is queued)
+	private int size;
+
+	public IndexedIntHeap(int idCapacity) {
+		heap = new int[16];
+		keys = new long[16];
+		slots = new int[Math.max(idCapacity, 1)];
+	}
+
+	// make sure ids up to (but not including) idCapacity can be queued
+	public void ensureIdCapacity(int idCapacity) {
+		if (idCapacity > slots.length) {
+			slots = Arrays.copyOf(slots, Math.max(idCapacity, slots.length * 2));
+		}
+	}
+
+	// a slot entry may be stale from an earlier search, so it only counts
+	// if the heap really holds the id at that slot
+	public boolean contains(int id) {
+		int slot = slots[id];
+		return slot < size && heap[slot] == id;
+	}
+
+	public void add(int id, long key) {
+		if (size == heap.length) {
+			heap = Arrays.copyOf(heap, size * 2);
+			keys = Arrays.copyOf(keys, size * 2);
+		}
+		heap[size] = id;
+		keys[size] = key;
+		slots[id] = size;
+		size++;
+		siftUp(size - 1);
+	}
+
+	// changes the priority of a queued id
+	public void update(int id, long key) {
+		int slot = slots[id];
+		long old = keys[slot];
+		keys[slot] = key;
+		if (key < old) {
+			siftUp(slot);
+		} else {
+			siftDown(slot);
+		}
+	}
+
+	// adds the id, or changes its priority if it is already queued
+	public void addOrUpdate(int id, long key) {
+		if (contains(id)) {
+			update(id, key);
+		} else {
+			add(id, key);
+		}
+	}
+
+	// removes an id from the heap if it is queued
+	public void remove(int id) {
+		if (!contains(id)) {
+			return;
+		}
+		int slot = slots[id];
+		size--;
+		if (slot != size) {
+			int moved = heap[size];
+			heap[slot] = moved;
+			keys[slot] = keys[size];
+			slots[moved] = slot;
+			siftUp(slot);
+			siftDown(slots[moved]);
+		}
+	}
+
+	// removes and returns the id with the lowest priority
+	public int poll() {
+		int first = heap[0];
+		size--;
+		if (size > 0) {
+			heap[0] = heap[size];
+			keys[0] = keys[size];
+			slots[heap[0]] = 0;
+			siftDown(0);
+		}
+		return first;
+	}
+
+	public int peek() {
+		return heap[0];
+	}
+
+	public long peekKey() {
+		return keys[0];
+	}
+
+	public long getKey(int id) {
+		return keys[slots[id]];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public void clear() {
+		size = 0;
+	}
+
+	private void siftUp(int i) {
+		int id = heap[i];
+		long key = keys[i];
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (keys[parent] <= key) {
+				break;
+			}
+			heap[i] = heap[parent];
+			keys[i] = keys[parent];
+			slots[heap[i]] = i;
+			i = parent;
+		}
+		heap[i] = id;
+		keys[i] = key;
+		slots[id] = i;
+	}
+
+	private void siftDown(int i) {
+		int id = heap[i];
+		long key = keys[i];
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= size) {
+				break;
+			}
+			if (child + 1 < size && keys[child + 1] < keys[child]) {
+				child++;
+			}
+			if (keys[child] >= key) {
+				break;
+			}
+			heap[i] = heap[child];
+			keys[i] = keys[child];
+			slots[heap[i]] = i;
+			i = child;
+		}
+		heap[i] = id;
+		keys[i] = key;
+		slots[id] = i;
+	}
+}
@@ -0,0 +1,143 @@
+// This is an indexed binary heap used as the A* frontier. Next to the heap
+// array it keeps a map from each element to its slot, so membership tests
+// are O(1) and an element that is found again with a better priority can be
+// updated in place (decrease-key) in O(log n) instead of being added twice.
+
+package mazeworld;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+
+public class IndexedPriorityQueue<T> {
+
+	private ArrayList<T> heap;              // the binary heap, smallest element at index 0
+	private HashMap<T, Integer> slots;      // element -> index of that element in the heap
+	private Comparator<? super T> comparator;
+
+	public IndexedPriorityQueue(Comparator<? super T> c) {
+		heap = new ArrayList<T>();
+		slots = new HashMap<T, Integer>();
+		comparator = c;
+	}
+
+	// adds the element to the queue. Returns false (and leaves the queue alone)
+	// if an equal element is already queued - use update() to change its priority
+	public boolean add(T element) {
+		if (slots.containsKey(element)) {
+			return false;
+		}
+		heap.add(element);
+		slots.put(element, heap.size() - 1);
+		siftUp(heap.size() - 1);
+		return true;
+	}
+
+	// replaces the queued element that is equal to the given one with the given
+	// one and restores the heap order. Used for decrease-key, but it works for
+	// an increase as well
+	public boolean update(T element) {
+		Integer slot = slots.get(element);
+		if (slot == null) {
+			return false;
+		}
+		// remove first so the map key is replaced by the new object too
+		slots.remove(element);
+		heap.set(slot, element);
+		slots.put(element, slot);
+		siftUp(slot);
+		siftDown(slots.get(element));
+		return true;
+	}
+
+	// removes and returns the element with the lowest priority
+	public T poll() {
+		if (heap.isEmpty()) {
+			return null;
+		}
+		T first = heap.get(0);
+		T last = heap.remove(heap.size() - 1);
+		slots.remove(first);
+		if (!heap.isEmpty()) {
+			heap.set(0, last);
+			slots.put(last, 0);
+			siftDown(0);
+		}
+		return first;
+	}
+
+	public T peek() {
+		if (heap.isEmpty()) {
+			return null;
+		}
+		return heap.get(0);
+	}
+
+	public boolean contains(T element) {
+		return slots.containsKey(element);
+	}
+
+	// returns the queued element that is equal to the given one (this is the
+	// one that carries the priority the queue is using), or null
+	public T get(T element) {
+		Integer slot = slots.get(element);
+		if (slot == null) {
+			return null;
+		}
+		return heap.get(slot);
+	}
+
+	public int size() {
+		return heap.size();
+	}
+
+	public boolean isEmpty() {
+		return heap.isEmpty();
+	}
+
+	public void clear() {
+		heap.clear();
+		slots.clear();
+	}
+
+	// move the element at index i up until its parent is not larger
+	private void siftUp(int i) {
+		T element = heap.get(i);
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			T parentElement = heap.get(parent);
+			if (comparator.compare(element, parentElement) >= 0) {
+				break;
+			}
+			heap.set(i, parentElement);
+			slots.put(parentElement, i);
+			i = parent;
+		}
+		heap.set(i, element);
+		slots.put(element, i);
+	}
+
+	// move the element at index i down until both children are not smaller
+	private void siftDown(int i) {
+		T element = heap.get(i);
+		int size = heap.size();
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= size) {
+				break;
+			}
+			if (child + 1 < size && comparator.compare(heap.get(child + 1), heap.get(child)) < 0) {
+				child++;
+			}
+			T childElement = heap.get(child);
+			if (comparator.compare(childElement, element) >= 0) {
+				break;
+			}
+			heap.set(i, childElement);
+			slots.put(childElement, i);
+			i = child;
+		}
+		heap.set(i, element);
+		slots.put(element, i);
+	}
+}
@@ -0,0 +1,214 @@
+// This is Jump Point Search for a single robot on a 4-connected grid with unit
+// move costs. On open maps most shortest paths are symmetric (the same moves
+// in a different order), and plain A* expands all of them. JPS only expands
+// the cells where a shortest path may have to turn, and jumps over the rest.
+//
+// The pruning follows a "vertical moves first" canonical order:
+//  - moving vertically, the natural neighbors are straight on, left and right.
+//    A vertical jump stops at a cell from which a horizontal jump finds a
+//    jump point (or at the goal).
+//  - moving horizontally, the only natural neighbor is straight on. A cell
+//    above or below is forced (and the jump stops) when the cell behind it
+//    is blocked, since a vertical-first path could not have reached it.
+// Paths have the same length as those of A* on the same grid.
+
+package mazeworld;
+
+import java.util.Arrays;
+
+public class JumpPointSearch {
+
+	// directions a jump point was reached in
+	private static final byte UP = 0, DOWN = 1, RIGHT = 2, LEFT = 3, NONE = 4;
+	private static final int[] DX = { 0, 0, 1, -1 };
+	private static final int[] DY = { 1, -1, 0, 0 };
+
+	private Maze maze;
+	private int width, height;
+	private int goal;
+
+	private int[] cost;       // path cost from the start, valid if seen[cell] == stamp
+	private int[] parent;     // previous jump point, -1 for the start
+	private byte[] arrived;   // direction the cell was reached in
+	private int[] seen;
+	private int stamp;
+	private IndexedIntHeap open;
+	private SearchStats stats;
+	private int reached;
+
+	public JumpPointSearch(Maze m) {
+		maze = m;
+		width = m.getWidth();
+		height = m.getHeight();
+		int cells = width * height;
+		cost = new int[cells];
+		parent = new int[cells];
+		arrived = new byte[cells];
+		seen = new int[cells];
+		open = new IndexedIntHeap(cells);
+	}
+
+	public int cellOf(int x, int y) {
+		return y * width + x;
+	}
+
+	// the stats of the most recent search
+	public SearchStats getLastSearchStats() {
+		return stats;
+	}
+
+	// A* over jump points from start to goal (both cell indices). Returns every
+	// cell of the path in order from start to goal, or null if there is none
+	public int[] search(int start, int g) {
+		newSearch();
+		goal = g;
+		int goalx = goal % width;
+		int goaly = goal / width;
+
+		reach(start, -1, 0, NONE);
+		open.add(start, key(0, manhattan(start, goalx, goaly)));
+
+		while (!open.isEmpty()) {
+			stats.frontier(open.size());
+			int current = open.poll();
+			if (current == goal) {
+				return finish(tracePath(goal));
+			}
+			stats.expansions++;
+			int x = current % width;
+			int y = current / width;
+			byte direction = arrived[current];
+
+			if (direction == NONE) {
+				for (byte d = 0; d < 4; d++) {
+					successor(current, x, y, d, goalx, goaly);
+				}
+			} else if (direction == UP || direction == DOWN) {
+				successor(current, x, y, direction, goalx, goaly);
+				successor(current, x, y, RIGHT, goalx, goaly);
+				successor(current, x, y, LEFT, goalx, goaly);
+			} else {
+				successor(current, x, y, direction, goalx, goaly);
+				// forced neighbors: the cell behind the vertical neighbor is blocked
+				int dx = DX[direction];
+				if (maze.isBlocked(x - dx, y + 1) && !maze.isBlocked(x, y + 1)) {
+					successor(current, x, y, UP, goalx, goaly);
+				}
+				if (maze.isBlocked(x - dx, y - 1) && !maze.isBlocked(x, y - 1)) {
+					successor(current, x, y, DOWN, goalx, goaly);
+				}
+			}
+		}
+		return finish(null);
+	}
+
+	// jump from (x,y) in direction d and queue the jump point it finds
+	private void successor(int from, int x, int y, byte d, int goalx, int goaly) {
+		int jumpPoint = (d == UP || d == DOWN) ? jumpVertical(x, y, DY[d]) : jumpHorizontal(x, y, DX[d]);
+		if (jumpPoint == -1) {
+			return;
+		}
+		stats.generated++;
+		int newCost = cost[from] + Math.abs(jumpPoint % width - x) + Math.abs(jumpPoint / width - y);
+		if (seen[jumpPoint] != stamp) {
+			reach(jumpPoint, from, newCost, d);
+			open.add(jumpPoint, key(newCost, manhattan(jumpPoint, goalx, goaly)));
+			return;
+		}
+		stats.duplicates++;
+		if (newCost < cost[jumpPoint]) {
+			if (!open.contains(jumpPoint)) {
+				stats.reopened++;
+			}
+			reach(jumpPoint, from, newCost, d);
+			open.addOrUpdate(jumpPoint, key(newCost, manhattan(jumpPoint, goalx, goaly)));
+		}
+	}
+
+	// step horizontally until the goal, a forced neighbor or a wall
+	private int jumpHorizontal(int x, int y, int dx) {
+		while (true) {
+			x += dx;
+			if (maze.isBlocked(x, y)) {
+				return -1;
+			}
+			int cell = y * width + x;
+			if (cell == goal) {
+				return cell;
+			}
+			if ((maze.isBlocked(x - dx, y + 1) && !maze.isBlocked(x, y + 1))
+					|| (maze.isBlocked(x - dx, y - 1) && !maze.isBlocked(x, y - 1))) {
+				return cell;
+			}
+		}
+	}
+
+	// step vertically until the goal, a cell with a horizontal jump point, or a wall
+	private int jumpVertical(int x, int y, int dy) {
+		while (true) {
+			y += dy;
+			if (maze.isBlocked(x, y)) {
+				return -1;
+			}
+			int cell = y * width + x;
+			if (cell == goal) {
+				return cell;
+			}
+			if (jumpHorizontal(x, y, 1) != -1 || jumpHorizontal(x, y, -1) != -1) {
+				return cell;
+			}
+		}
+	}
+
+	private void reach(int cell, int from, int c, byte d) {
+		if (seen[cell] != stamp) {
+			reached++;
+		}
+		seen[cell] = stamp;
+		parent[cell] = from;
+		cost[cell] = c;
+		arrived[cell] = d;
+	}
+
+	private int manhattan(int cell, int goalx, int goaly) {
+		return Math.abs(goalx - cell % width) + Math.abs(goaly - cell / width);
+	}
+
+	private static long key(int c, int h) {
+		return ((long) (c + h) << 32) | h;
+	}
+
+	// the jump points are joined by straight segments, so the full path is
+	// filled in from the back, one cell at a time
+	private int[] tracePath(int end) {
+		int[] path = new int[cost[end] + 1];
+		int i = path.length - 1;
+		path[i] = end;
+		for (int cell = end; parent[cell] != -1; cell = parent[cell]) {
+			int from = parent[cell];
+			int step = Integer.signum(from % width - cell % width) + width * Integer.signum(from / width - cell / width);
+			for (int c = cell + step; c != from; c += step) {
+				path[--i] = c;
+			}
+			path[--i] = from;
+		}
+		return path;
+	}
+
+	private int[] finish(int[] path) {
+		stats.visited(reached);
+		stats.finish(path == null ? 0 : path.length, path != null);
+		return path;
+	}
+
+	private void newSearch() {
+		stats = new SearchStats("JumpPointSearch", "jps");
+		reached = 0;
+		open.clear();
+		stamp++;
+		if (stamp == 0) {
+			Arrays.fill(seen, 0);
+			stamp = 1;
+		}
+	}
+}
@@ -0,0 +1,199 @@
+// This is the ALT (A*, landmarks, triangle inequality) heuristic for a static
+// maze. K landmark cells are picked once per maze and a breadth first search
+// from each one gives its true distance to every cell. For any landmark L the
+// triangle inequality gives |d(L,a) - d(L,b)| <= d(a,b), so the largest of
+// these differences is an admissible lower bound that, unlike the manhattan
+// distance, knows about the barriers. Each estimate costs O(K).
+//
+// The tables can be written to disk and loaded again, so a restarted service
+// doesn't have to recompute them for a maze it has already seen.
+
+package mazeworld;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+public class LandmarkHeuristic {
+
+	private static final int FILE_MAGIC = 0x4c4d4b31;   // "LMK1"
+
+	private int width, height;
+	private long mazeChecksum;
+	private int[] landmarks;      // cell index of every landmark
+	private int[][] distances;    // distances[k][cell], -1 if unreachable
+
+	// picks k landmarks by farthest point selection: each new landmark is the
+	// open cell farthest from the landmarks chosen so far, which spreads them
+	// out to the edges and dead ends of the maze where they bound best. Cells no
+	// landmark can reach count as infinitely far, so every open region that is
+	// big enough gets a landmark too
+	public LandmarkHeuristic(Maze maze, int k) {
+		width = maze.getWidth();
+		height = maze.getHeight();
+		mazeChecksum = maze.checksum();
+
+		int first = -1;
+		for (int cell = 0; cell < width * height && first == -1; cell++) {
+			if (!maze.isBlocked(cell)) {
+				first = cell;
+			}
+		}
+		if (first == -1) {
+			landmarks = new int[0];
+			distances = new int[0][];
+			return;
+		}
+
+		// closest[cell] is the distance to the nearest landmark so far
+		int[] closest = new int[width * height];
+		for (int cell = 0; cell < closest.length; cell++) {
+			closest[cell] = maze.isBlocked(cell) ? -1 : Integer.MAX_VALUE;
+		}
+
+		// the first landmark is the cell farthest from an arbitrary open cell
+		int next = farthest(maze.distancesFrom(first % width, first / width));
+		if (next == -1) {
+			next = first;
+		}
+
+		landmarks = new int[k];
+		distances = new int[k][];
+		int count = 0;
+		while (count < k && next != -1) {
+			landmarks[count] = next;
+			distances[count] = maze.distancesFrom(next % width, next / width);
+			for (int cell = 0; cell < closest.length; cell++) {
+				int d = distances[count][cell];
+				if (d != -1 && d < closest[cell]) {
+					closest[cell] = d;
+				}
+			}
+			count++;
+			next = farthest(closest);
+		}
+		if (count < k) {
+			landmarks = Arrays.copyOf(landmarks, count);
+			distances = Arrays.copyOf(distances, count);
+		}
+	}
+
+	private LandmarkHeuristic(int w, int h, long checksum, int[] l, int[][] d) {
+		width = w;
+		height = h;
+		mazeChecksum = checksum;
+		landmarks = l;
+		distances = d;
+	}
+
+	// the cell with the largest positive distance in the table, or -1 if there
+	// is none (landmarks themselves are at distance 0)
+	private static int farthest(int[] distance) {
+		int best = -1;
+		for (int cell = 0; cell < distance.length; cell++) {
+			if (distance[cell] > 0 && (best == -1 || distance[cell] > distance[best])) {
+				best = cell;
+			}
+		}
+		return best;
+	}
+
+	public int getLandmarkCount() {
+		return landmarks.length;
+	}
+
+	// true if these tables were computed for a maze with the same size and barriers
+	public boolean matches(Maze maze) {
+		return maze.getWidth() == width && maze.getHeight() == height && maze.checksum() == mazeChecksum;
+	}
+
+	// lower bound on the number of moves between two cells (y * width + x). It
+	// is never below the manhattan distance
+	public int estimate(int from, int to) {
+		int bound = Math.abs(from % width - to % width) + Math.abs(from / width - to / width);
+		for (int k = 0; k < distances.length; k++) {
+			int a = distances[k][from];
+			int b = distances[k][to];
+			// a landmark that can't reach one of the cells says nothing about it
+			if (a != -1 && b != -1) {
+				bound = Math.max(bound, Math.abs(a - b));
+			}
+		}
+		return bound;
+	}
+
+	// the same bound for (x,y) coordinates
+	public int estimate(int fromx, int fromy, int tox, int toy) {
+		return estimate(fromy * width + fromx, toy * width + tox);
+	}
+
+	// write the tables to a file
+	public void save(File file) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+		try {
+			out.writeInt(FILE_MAGIC);
+			out.writeInt(width);
+			out.writeInt(height);
+			out.writeLong(mazeChecksum);
+			out.writeInt(landmarks.length);
+			for (int k = 0; k < landmarks.length; k++) {
+				out.writeInt(landmarks[k]);
+				for (int cell = 0; cell < distances[k].length; cell++) {
+					out.writeInt(distances[k][cell]);
+				}
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	// read tables written by save(). Throws an IOException if the file is not a
+	// landmark file or was computed for a different maze
+	public static LandmarkHeuristic load(File file, Maze maze) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+		try {
+			if (in.readInt() != FILE_MAGIC) {
+				throw new IOException(file + " is not a landmark file");
+			}
+			int w = in.readInt();
+			int h = in.readInt();
+			long checksum = in.readLong();
+			if (w != maze.getWidth() || h != maze.getHeight() || checksum != maze.checksum()) {
+				throw new IOException(file + " was computed for a different maze");
+			}
+			int k = in.readInt();
+			int[] l = new int[k];
+			int[][] d = new int[k][w * h];
+			for (int i = 0; i < k; i++) {
+				l[i] = in.readInt();
+				for (int cell = 0; cell < w * h; cell++) {
+					d[i][cell] = in.readInt();
+				}
+			}
+			return new LandmarkHeuristic(w, h, checksum, l, d);
+		} finally {
+			in.close();
+		}
+	}
+
+	// loads the tables for the maze from the file if it holds them, otherwise
+	// computes them with k landmarks and writes them to the file
+	public static LandmarkHeuristic loadOrCompute(File file, Maze maze, int k) throws IOException {
+		if (file.exists()) {
+			try {
+				return load(file, maze);
+			} catch (IOException e) {
+				// stale or foreign file, fall through and replace it
+			}
+		}
+		LandmarkHeuristic heuristic = new LandmarkHeuristic(maze, k);
+		heuristic.save(file);
+		return heuristic;
+	}
+}
@@ -0,0 +1,125 @@
+// This is LongIntHashMap for keys that are several longs long, for packed
+// states that don't fit in a single long. Every key has the same number of
+// words, and the keys are stored back to back in one long array, so a key
+// costs its words and an int and no objects. Collisions are resolved by
+// linear probing and the table doubles once it is half full.
+
+package mazeworld;
+
+import java.util.Arrays;
+
+public class LongArrayIntHashMap {
+
+	private final int words;    // longs per key
+	private long[] keys;        // key i is keys[i * words .. (i + 1) * words)
+	private int[] values;       // value + 1, so that 0 marks an empty slot
+	private int size;
+	private int mask;
+
+	public LongArrayIntHashMap(int keyWords, int expectedSize) {
+		if (keyWords < 1) {
+			throw new IllegalArgumentException("keys need at least one word, was " + keyWords);
+		}
+		words = keyWords;
+		int capacity = 16;
+		while (capacity < expectedSize * 2) {
+			capacity <<= 1;
+		}
+		keys = new long[capacity * words];
+		values = new int[capacity];
+		mask = capacity - 1;
+	}
+
+	public int getKeyWords() {
+		return words;
+	}
+
+	// returns the value stored for the key (its first words longs), or -1 if
+	// there is none
+	public int get(long[] key) {
+		int i = index(key, 0);
+		while (values[i] != 0) {
+			if (matches(i, key)) {
+				return values[i] - 1;
+			}
+			i = (i + 1) & mask;
+		}
+		return -1;
+	}
+
+	public boolean containsKey(long[] key) {
+		return get(key) != -1;
+	}
+
+	// stores a (non-negative) value for the key, replacing any old value. The
+	// key's words are copied, so the array can be reused afterwards
+	public void put(long[] key, int value) {
+		int i = index(key, 0);
+		while (values[i] != 0) {
+			if (matches(i, key)) {
+				values[i] = value + 1;
+				return;
+			}
+			i = (i + 1) & mask;
+		}
+		System.arraycopy(key, 0, keys, i * words, words);
+		values[i] = value + 1;
+		size++;
+		if (size * 2 > values.length) {
+			grow();
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public void clear() {
+		Arrays.fill(values, 0);
+		size = 0;
+	}
+
+	private boolean matches(int slot, long[] key) {
+		int base = slot * words;
+		for (int w = 0; w < words; w++) {
+			if (keys[base + w] != key[w]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void grow() {
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+		keys = new long[oldKeys.length * 2];
+		values = new int[oldValues.length * 2];
+		mask = values.length - 1;
+		for (int j = 0; j < oldValues.length; j++) {
+			if (oldValues[j] != 0) {
+				int i = index(oldKeys, j * words);
+				while (values[i] != 0) {
+					i = (i + 1) & mask;
+				}
+				System.arraycopy(oldKeys, j * words, keys, i * words, words);
+				values[i] = oldValues[j];
+			}
+		}
+	}
+
+	// folds the words together and mixes the result like LongIntHashMap does
+	// (the murmur3 64 bit finalizer)
+	private int index(long[] key, int from) {
+		long hash = 0;
+		for (int w = 0; w < words; w++) {
+			hash = (hash ^ key[from + w]) * 0x9E3779B97F4A7C15L;
+			hash = Long.rotateLeft(hash, 31);
+		}
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return (int) hash & mask;
+	}
+}
@@ -0,0 +1,99 @@
+// This is a primitive open-addressing hash table from long keys to int
+// values. It is used by the packed searches to map a packed state onto the
+// slot that holds its cost and parent, without boxing a Long or allocating an
+// entry object per state. Collisions are resolved by linear probing and the
+// table doubles once it is half full.
+
+package mazeworld;
+
+import java.util.Arrays;
+
+public class LongIntHashMap {
+
+	private long[] keys;
+	private int[] values;    // value + 1, so that 0 marks an empty slot
+	private int size;
+	private int mask;
+
+	public LongIntHashMap(int expectedSize) {
+		int capacity = 16;
+		while (capacity < expectedSize * 2) {
+			capacity <<= 1;
+		}
+		keys = new long[capacity];
+		values = new int[capacity];
+		mask = capacity - 1;
+	}
+
+	// returns the value stored for the key, or -1 if there is none
+	public int get(long key) {
+		int i = index(key);
+		while (values[i] != 0) {
+			if (keys[i] == key) {
+				return values[i] - 1;
+			}
+			i = (i + 1) & mask;
+		}
+		return -1;
+	}
+
+	public boolean containsKey(long key) {
+		return get(key) != -1;
+	}
+
+	// stores a (non-negative) value for the key, replacing any old value
+	public void put(long key, int value) {
+		int i = index(key);
+		while (values[i] != 0) {
+			if (keys[i] == key) {
+				values[i] = value + 1;
+				return;
+			}
+			i = (i + 1) & mask;
+		}
+		keys[i] = key;
+		values[i] = value + 1;
+		size++;
+		if (size * 2 > keys.length) {
+			grow();
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public void clear() {
+		Arrays.fill(values, 0);
+		size = 0;
+	}
+
+	private void grow() {
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+		keys = new long[oldKeys.length * 2];
+		values = new int[oldValues.length * 2];
+		mask = keys.length - 1;
+		for (int j = 0; j < oldKeys.length; j++) {
+			if (oldValues[j] != 0) {
+				int i = index(oldKeys[j]);
+				while (values[i] != 0) {
+					i = (i + 1) & mask;
+				}
+				keys[i] = oldKeys[j];
+				values[i] = oldValues[j];
+			}
+		}
+	}
+
+	// packed states differ mostly in a few low bits, so mix all of them
+	// before masking (the murmur3 64 bit finalizer)
+	private int index(long key) {
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		key *= 0xc4ceb9fe1a85ec53L;
+		key ^= key >>> 33;
+		return (int) key & mask;
+	}
+}
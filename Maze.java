@@ -2,55 +2,134 @@
 // this is the class that holds all the information about the state of the maze.
 // this maze class is used for the single robot problem, the multi robot problem
 // and the blind robot problem
+//
+// a Maze is immutable: it only knows where the barriers are, so one maze can be
+// shared by any number of problems and searches, including concurrent ones.
+// Anything drawn on top of it for display (start, goal, path, robots) goes
+// into a MazeOverlay instead.
+//
+// the barriers are a flat row-major bitset, one bit per cell, so a 16k x 16k
+// map takes 32 MB and a row of cells is a run of consecutive words.
 
 package mazeworld;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 
 public class Maze {
-	private int width;
-	private int height; 
-	private int[][] barriers;    // holds the (x,y) coordinates of every barrier
-	private char[][] mazeState;  // holds the characters at every index of the maze
+	private final int width;
+	private final int height; 
+	private final long[] barriers;    // bit (y * width + x) is set if (x,y) is a barrier
 	
-	private final static char EMPTY = '.';
-	private final static char BARRIER = '#';
+	public final static char EMPTY = '.';
+	public final static char BARRIER = '#';
 	
 	public Maze(int w, int h, int[][] b) {
 		width = w;
 		height = h;
-		barriers = b;
-		mazeState = new char[w][h];
+		barriers = new long[Math.max(1, (int) (((long) w * h + 63) >>> 6))];
 		
-		// create an empty maze
-		for (int i = 0; i < width; i++) {
-			for (int n = 0; n < height; n++) {
-				mazeState[i][n] = EMPTY;
+		// fill in the appropriate barriers. A barrier outside the maze would 
+		// set the bit of some other cell, so it is refused
+		for (int i = 0; i < b.length; i++) {
+			if (b[i][0] < 0 || b[i][1] < 0 || b[i][0] >= width || b[i][1] >= height) {
+				throw new IllegalArgumentException("barrier (" + b[i][0] + "," + b[i][1] + ") is outside the "
+						+ width + "x" + height + " maze");
 			}
+			int cell = b[i][1] * width + b[i][0];
+			barriers[cell >>> 6] |= 1L << cell;
 		}
+	}
+	
+	// returns the current state of the maze
+	public char getMazeState(int x, int y) {
+		return isBarrier(x, y) ? BARRIER : EMPTY;
+	}
+	
+	// is there a barrier at the given (x,y) coordinate (which must be in the maze)
+	public boolean isBarrier(int x, int y) {
+		return isBlocked(y * width + x);
+	}
+	
+	// can a robot not stand on (x,y)? True for barriers and for anything outside 
+	// the maze. This is the check every successor goes through, so it is branch
+	// free: outside is 1 when one of x, y, width-1-x, height-1-y is negative, and
+	// the cell index is masked to 0 in that case so the read stays in bounds
+	public boolean isBlocked(int x, int y) {
+		int outside = (x | y | (width - 1 - x) | (height - 1 - y)) >>> 31;
+		int cell = (y * width + x) & (outside - 1);
+		return (((barriers[cell >>> 6] >>> cell) & 1L) | outside) != 0;
+	}
+	
+	// is there a barrier at the given cell index (y * width + x)
+	public boolean isBlocked(int cell) {
+		return ((barriers[cell >>> 6] >>> cell) & 1L) != 0;
+	}
+	
+	// breadth first search over the whole maze from (x,y). Returns the number of
+	// moves from (x,y) to every cell, indexed by y * width + x, with -1 for
+	// barriers and cells that can't be reached. Moves are reversible, so this is 
+	// also the distance from every cell to (x,y)
+	public int[] distancesFrom(int x, int y) {
+		int[] distance = new int[width * height];
+		Arrays.fill(distance, -1);
+		if (isBlocked(x, y)) {
+			return distance;
+		}
+		int[] queue = new int[width * height];
+		int head = 0;
+		int tail = 0;
+		int start = y * width + x;
+		distance[start] = 0;
+		queue[tail++] = start;
 		
-		// fill in the appropriate barriers
+		while (head < tail) {
+			int cell = queue[head++];
+			int cx = cell % width;
+			int cy = cell / width;
+			int next = distance[cell] + 1;
+			if (!isBlocked(cx, cy + 1) && distance[cell + width] == -1) {
+				distance[cell + width] = next;
+				queue[tail++] = cell + width;
+			}
+			if (!isBlocked(cx, cy - 1) && distance[cell - width] == -1) {
+				distance[cell - width] = next;
+				queue[tail++] = cell - width;
+			}
+			if (!isBlocked(cx + 1, cy) && distance[cell + 1] == -1) {
+				distance[cell + 1] = next;
+				queue[tail++] = cell + 1;
+			}
+			if (!isBlocked(cx - 1, cy) && distance[cell - 1] == -1) {
+				distance[cell - 1] = next;
+				queue[tail++] = cell - 1;
+			}
+		}
+		return distance;
+	}
+	
+	// a checksum of the size and the barriers, used to tell whether data 
+	// precomputed for a maze (like landmark tables) belongs to this one
+	public long checksum() {
+		long sum = width * 31L + height;
 		for (int i = 0; i < barriers.length; i++) {
-			mazeState[barriers[i][0]][barriers[i][1]] = BARRIER;
+			sum = sum * 1000003L ^ barriers[i];
 		}
+		return sum;
 	}
 	
-	// returns the current state of the maze
-	public char getMazeState(int x, int y) {
-		return mazeState[x][y];
+	public int getWidth() {
+		return width;
 	}
 	
-	// set the given (x,y) coordinate of the maze to the given character
-	public void setPathNode(int x, int y, char c) {
-		mazeState[x][y] = c;
+	public int getHeight() {
+		return height;
 	}
 	
-	// display the maze given the current state
+	// display the maze
 	public void displayMaze() {
 		for (int h = (height - 1); h >= 0; h--) {
 			for (int w = 0; w < width; w++) {
-				System.out.print(mazeState[w][h] + " ");
+				System.out.print(getMazeState(w, h) + " ");
 			}
 			System.out.print("\n");
 		}
@@ -62,4 +141,4 @@ public class Maze {
 		Maze maze1 = new Maze(6, 6, barriers1);
 		maze1.displayMaze();	
 	}
-}
\ No newline at end of file
+}
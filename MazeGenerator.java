@@ -0,0 +1,109 @@
+// This generates random mazes for the benchmarks. A maze is described by its
+// size, the fraction of cells that are barriers and a seed, so the same
+// parameters always produce the same maze and the same start/goal cells.
+
+package mazeworld;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+public class MazeGenerator {
+
+	private int width, height;
+	private boolean[][] blocked;
+	private int[][] barriers;
+	private Random random;
+
+	public MazeGenerator(int w, int h, double density, long seed) {
+		width = w;
+		height = h;
+		random = new Random(seed);
+		blocked = new boolean[w][h];
+
+		ArrayList<int[]> list = new ArrayList<int[]>();
+		for (int x = 0; x < width; x++) {
+			for (int y = 0; y < height; y++) {
+				if (random.nextDouble() < density) {
+					blocked[x][y] = true;
+					list.add(new int[] {x, y});
+				}
+			}
+		}
+		barriers = list.toArray(new int[list.size()][]);
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	// the barriers in the {x, y} form the problem constructors take
+	public int[][] getBarriers() {
+		return barriers;
+	}
+
+	public Maze getMaze() {
+		return new Maze(width, height, barriers);
+	}
+
+	// picks count distinct free cells that are all connected to each other
+	// (they lie in the same open region as the first one picked). Returns null
+	// if no region of the maze is large enough
+	public int[][] freeCells(int count) {
+		for (int attempt = 0; attempt < 100; attempt++) {
+			int[] first = randomFreeCell();
+			if (first == null) {
+				return null;
+			}
+			ArrayList<int[]> region = region(first[0], first[1]);
+			if (region.size() < count) {
+				continue;
+			}
+			int[][] cells = new int[count][];
+			for (int i = 0; i < count; i++) {
+				int pick = i + random.nextInt(region.size() - i);
+				int[] chosen = region.get(pick);
+				region.set(pick, region.get(i));
+				region.set(i, chosen);
+				cells[i] = chosen;
+			}
+			return cells;
+		}
+		return null;
+	}
+
+	private int[] randomFreeCell() {
+		for (int attempt = 0; attempt < 1000; attempt++) {
+			int x = random.nextInt(width);
+			int y = random.nextInt(height);
+			if (!blocked[x][y]) {
+				return new int[] {x, y};
+			}
+		}
+		return null;
+	}
+
+	// flood fill of the open cells connected to (x, y)
+	private ArrayList<int[]> region(int x, int y) {
+		boolean[][] seen = new boolean[width][height];
+		ArrayList<int[]> cells = new ArrayList<int[]>();
+		cells.add(new int[] {x, y});
+		seen[x][y] = true;
+		for (int i = 0; i < cells.size(); i++) {
+			int cx = cells.get(i)[0];
+			int cy = cells.get(i)[1];
+			int[][] moves = { {cx, cy + 1}, {cx, cy - 1}, {cx + 1, cy}, {cx - 1, cy} };
+			for (int[] m : moves) {
+				if (m[0] >= 0 && m[0] < width && m[1] >= 0 && m[1] < height
+						&& !blocked[m[0]][m[1]] && !seen[m[0]][m[1]]) {
+					seen[m[0]][m[1]] = true;
+					cells.add(m);
+				}
+			}
+		}
+		return cells;
+	}
+}
@@ -0,0 +1,52 @@
+// this holds the characters drawn on top of a Maze when a problem or a path
+// is displayed (start, goal, path nodes, robot letters). The marks are kept
+// apart from the maze itself, so drawing never changes the maze that the
+// searches read, and clearing the overlay doesn't need a new maze.
+
+package mazeworld;
+
+import java.util.HashMap;
+
+public class MazeOverlay {
+	private Maze maze;
+	private HashMap<Integer, Character> marks;   // cell (y * width + x) -> character
+	
+	public MazeOverlay(Maze m) {
+		maze = m;
+		marks = new HashMap<Integer, Character>();
+	}
+	
+	public Maze getMaze() {
+		return maze;
+	}
+	
+	// set the given (x,y) coordinate of the overlay to the given character
+	public void setPathNode(int x, int y, char c) {
+		marks.put(y * maze.getWidth() + x, c);
+	}
+	
+	// returns the character shown at (x,y): the mark if there is one, 
+	// otherwise the maze itself
+	public char getMazeState(int x, int y) {
+		Character mark = marks.get(y * maze.getWidth() + x);
+		if (mark != null) {
+			return mark;
+		}
+		return maze.getMazeState(x, y);
+	}
+	
+	// remove every mark
+	public void clear() {
+		marks.clear();
+	}
+	
+	// display the maze with the marks on top of it
+	public void displayMaze() {
+		for (int h = (maze.getHeight() - 1); h >= 0; h--) {
+			for (int w = 0; w < maze.getWidth(); w++) {
+				System.out.print(getMazeState(w, h) + " ");
+			}
+			System.out.print("\n");
+		}
+	}
+}
@@ -7,7 +7,9 @@ package mazeworld;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 
 public class MultiRobotMazeworldProblem extends UUSearchProblem {
@@ -17,24 +19,43 @@ public class MultiRobotMazeworldProblem extends UUSearchProblem {
 	// array contains the letters associated with each robot index
 	private char[] robotsLetters;      
 	
-	// arrays contain the location of the barriers and the goals
-	private int[][] barriers, robotsGoals;
+	// arrays contain the location of the goals and the starts
+	private int[][] robotsGoals;
+	private int[][] robotsStart;
 	private Maze maze;
+	private MazeOverlay overlay;     // robot and goal letters for display
+	private PackedRobots packedRobots;
+	private int[][] goalDistances;   // goalDistances[i][y * width + x]: moves from (x,y) to robot i's goal
+	private int[] conflictCells;     // scratch of findConflict, see there
 
 	public MultiRobotMazeworldProblem(int width, int height, int[][] rg, int[][] robotsStart, int[][] b) {
-		mazeWidth = width;
-		mazeHeight = height;
-		barriers = b;
+		this(new Maze(width, height, b), rg, robotsStart);
+	}
+	
+	// a problem on an existing maze. The maze is only read, so it can be shared
+	// with other problems
+	public MultiRobotMazeworldProblem(Maze m, int[][] rg, int[][] robotsStart) {
+		this(m, rg, robotsStart, distancesToGoals(m, rg));
+	}
+	
+	// a problem whose per robot distance tables are already known, such as a
+	// group of robots of a bigger problem. The tables are shared, not copied
+	private MultiRobotMazeworldProblem(Maze m, int[][] rg, int[][] robotsStart, int[][] distances) {
+		this.robotsStart = robotsStart;
+		maze = m;
+		mazeWidth = maze.getWidth();
+		mazeHeight = maze.getHeight();
 		robotsGoals = rg;
+		goalDistances = distances;
 		
-		maze = new Maze(mazeWidth, mazeHeight, barriers);
-		startNode = new MultiMazeWorldNode(0, 0, robotsStart);
+		overlay = new MazeOverlay(maze);
+		startNode = new MultiMazeWorldNode(0, calculateHeuristic(robotsStart), 0, robotsStart);
 		robotsLetters = new char[robotsStart.length];
 		
 		// produce the Robots letters array, where index 0 -> 'A', index 1 -> 'B".....
 		char currentLetter = 'A';
 		for (int i = 0; i < robotsStart.length; i++) {
-			maze.setPathNode(robotsStart[i][0], robotsStart[i][1], currentLetter);
+			overlay.setPathNode(robotsStart[i][0], robotsStart[i][1], currentLetter);
 			robotsLetters[i] = currentLetter;
 			currentLetter++;
 		}		
@@ -42,7 +63,7 @@ public class MultiRobotMazeworldProblem extends UUSearchProblem {
 		// display on the maze where each goal is.
 		char currentLetter2 = 'a';
 		for (int i = 0; i < robotsStart.length; i++) {
-			maze.setPathNode(robotsGoals[i][0], robotsGoals[i][1], currentLetter2);
+			overlay.setPathNode(robotsGoals[i][0], robotsGoals[i][1], currentLetter2);
 			currentLetter2++;
 		}	
 
@@ -53,137 +74,80 @@ public class MultiRobotMazeworldProblem extends UUSearchProblem {
 		
 		// maintains the locations of all of the robots
 		private int[][] state; 
-		// maintains the current cost as well as the index of the robot that is moving
-		private int cost, robotToMove; 
+		// maintains the moves made so far, the heuristic, the current cost (the sum 
+		// of the two) as well as the index of the robot that moved to get here
+		private int pathCost, heuristic, cost, movedRobot; 
 
-		public MultiMazeWorldNode(int d, int robotIndex, int[][] robotPositions) {
-			// wrap around if the last robot just moved
-			if (robotIndex == robotPositions.length) {
-				robotToMove = 0;
-			} else {
-				robotToMove = robotIndex;
-			}
-			
+		public MultiMazeWorldNode(int g, int h, int robotIndex, int[][] robotPositions) {
+			movedRobot = robotIndex;
 			state = robotPositions;
-			cost = d;
+			pathCost = g;
+			heuristic = h;
+			cost = g + h;
 		}		
 		
-		// There are five possible moves per state - up, down, left, right and skip.
-		// this method creates a new state for every move (the state is the locations of all 
-		// robots. Then it calculates the heuristic of the new state. Finally it checks to make 
-		// sure the states are safe. If there are no safe or legal moves available, the method skips 
-		// to the next robot, who picks a move at the same cost. 
+		// Any robot may move on any step, in one of four directions: up, down, left
+		// or right. This method creates a new state for every legal move of every
+		// robot (the state is the locations of all robots) along with its heuristic.
+		// Moves into a wall, off the maze or onto another robot are dropped before
+		// any state is built. The moves and their order are the same as the packed
+		// state space's, so every search sees the same problem
 		public ArrayList<UUSearchNode> getSuccessorsWithHeuristic() {
-			// if the current robot is at its goal, skip the turn
-			while (this.individualGoalTest()) {
-				robotToMove++;
-				if (robotToMove == state.length) {
-					robotToMove = 0;
-				}
-			}
-			
-			int newDepth = cost + 1;
-			while (true) {
-				ArrayList<UUSearchNode> successors = new ArrayList<UUSearchNode>();
-				
-				int[][] newStateUpMove = createNewState(this.state[robotToMove][0], this.state[robotToMove][1] + 1);
-				int depth1 = newDepth + calculateHeuristic(this.state[robotToMove][0], this.state[robotToMove][1] + 1);
-				MultiMazeWorldNode topSuccessor = new MultiMazeWorldNode(depth1, robotToMove + 1, newStateUpMove);
+			ArrayList<UUSearchNode> successors = new ArrayList<UUSearchNode>();
+			for (int robot = 0; robot < state.length; robot++) {
+				int x = this.state[robot][0];
+				int y = this.state[robot][1];
 				
-				int[][] newStateDownMove = createNewState(this.state[robotToMove][0], this.state[robotToMove][1] - 1);
-				int depth2 = newDepth + calculateHeuristic(this.state[robotToMove][0], this.state[robotToMove][1] - 1);
-				MultiMazeWorldNode bottomSuccessor = new MultiMazeWorldNode(depth2, robotToMove + 1, newStateDownMove);
-				
-				int[][] newStateRightMove = createNewState(this.state[robotToMove][0] + 1, this.state[robotToMove][1]);
-				int depth3 = newDepth + calculateHeuristic(this.state[robotToMove][0] + 1, this.state[robotToMove][1]);
-				MultiMazeWorldNode rightSuccessor = new MultiMazeWorldNode(depth3, robotToMove + 1, newStateRightMove);
-				
-				int[][] newStateLeftMove = createNewState(this.state[robotToMove][0] - 1, this.state[robotToMove][1]);
-				int depth4 = newDepth + calculateHeuristic(this.state[robotToMove][0] - 1, this.state[robotToMove][1]);
-				MultiMazeWorldNode leftSuccessor = new MultiMazeWorldNode(depth4, robotToMove + 1, newStateLeftMove);
-				
-				if (topSuccessor.isStateSafe()) { successors.add(topSuccessor); }
-				if (bottomSuccessor.isStateSafe()) { successors.add(bottomSuccessor); }
-				if (rightSuccessor.isStateSafe()) { successors.add(rightSuccessor); }
-				if (leftSuccessor.isStateSafe()) { successors.add(leftSuccessor); }	
-				
-				
-				if (successors.size() != 0) {
-					return successors;
-				} else {
-					robotToMove++;
-					if (robotToMove == state.length) {
-						robotToMove = 0;
-					}
-				}
+				addSuccessor(successors, robot, x, y + 1);
+				addSuccessor(successors, robot, x, y - 1);
+				addSuccessor(successors, robot, x + 1, y);
+				addSuccessor(successors, robot, x - 1, y);
 			}
+			return successors;
 		}
 		
-		// not applicable for multiple robots (always uses heuristic)
+		// moves robot to (x,y) and adds the new state if it is safe. Only the 
+		// moving robot's distance changes, so the heuristic is the parent's with 
+		// that one term swapped
+		private void addSuccessor(ArrayList<UUSearchNode> successors, int robot, int x, int y) {
+			if (maze.isBlocked(x, y) || isOccupied(x, y)) {
+				return;
+			}
+			int h = heuristic - goalDistance(robot, this.state[robot][0], this.state[robot][1]) 
+					+ goalDistance(robot, x, y);
+			successors.add(new MultiMazeWorldNode(pathCost + 1, h, robot, createNewState(robot, x, y)));
+		}
+		
+		// the moves have no heuristic-free variant, so breadth first search gets
+		// the same successors as A*
 		public ArrayList<UUSearchNode> getSuccessors() {
-			return null;
+			return getSuccessorsWithHeuristic();
 		}
 		
-		// method creates a new state for the successor. It takes the x and y 
-		// coordinate of the robot that just moved and creates a new 2d array 
-		// state with the robots new location
-		public int[][] createNewState(int x, int y) {
-			int[][] returnState = new int[state.length][2];
-			int[] newLocation = {x,y};
-			
+		// method creates a new state for the successor. It takes the index of the
+		// robot that moves and its new x and y coordinate and creates a new 2d 
+		// array state with the robots new location
+		public int[][] createNewState(int robot, int x, int y) {
+			int[][] returnState = new int[state.length][];
 			for (int i = 0; i < state.length; i++) {
-				for (int j = 0; j < state[i].length; j++) {
-					returnState[i][j] = state[i][j];
-				}
+				returnState[i] = state[i];
 			}
-			returnState[robotToMove] = newLocation;
+			returnState[robot] = new int[] {x, y};
 			return returnState;
 		}
 		
-		// This method checks to see if the new state is safe. if the robot that just moved
-		// has an x coordinate that is greater than 0 and less than mazewidth and the y coord
-		// is greater than 0 and less than mazeheight, and the new state does not have a robot
-		// colliding with a barrier, and the new state does not have two robots colliding, the
-		// state is safe. 
-		private boolean isStateSafe() {
-			int lastRobot = robotToMove - 1;
-			if (lastRobot < 0) {
-				lastRobot = this.state.length - 1;
-			}
-			if (this.state[lastRobot][1] < mazeHeight && this.state[lastRobot][1] >= 0 && 
-					this.state[lastRobot][0] >= 0 && this.state[lastRobot][0] < mazeWidth && 
-					maze.getMazeState(this.state[lastRobot][0], this.state[lastRobot][1]) != '#') {
-				
-				for (int i = 0; i < state.length; i++) {
-					for (int j = i+1; j < state.length; j++) {
-						if (Arrays.equals(state[i], state[j]))  { return false; }
-					}
+		// is one of the robots on (x,y)? The robots are never on the same cell, so
+		// a move onto a cell that is free is safe
+		private boolean isOccupied(int x, int y) {
+			for (int i = 0; i < state.length; i++) {
+				if (state[i][0] == x && state[i][1] == y) {
+					return true;
 				}
-				
-				return true;
-			} else {
-				return false; 
 			}
+			return false;
 		}
 		 
 		
-		// the heuristic for this search is the sum of the distances of every
-		// robot to its goal
-		public int calculateHeuristic(int x, int y) {
-			int heuristic = 0;
-			int newX = Math.abs(robotsGoals[robotToMove][0] - x);
-			int newY = Math.abs(robotsGoals[robotToMove][1] - y);
-			heuristic += newX + newY;
-			for (int i = 0; i < state.length; i++) {
-				if (i != robotToMove) {
-					int xDist = Math.abs(robotsGoals[i][0] - state[i][0]);
-					int yDist = Math.abs(robotsGoals[i][1] - state[i][1]); 
-					heuristic += xDist + yDist;
-				}
-			}		
-			return (heuristic);
-		}
-		
 		// the total goal test - if every robot is at its goal state, the goal has been reached
 		@Override
 		public boolean goalTest() {
@@ -195,9 +159,9 @@ public class MultiRobotMazeworldProblem extends UUSearchProblem {
 			return true;
 		}
 		
-		// if the one robot is at its goal state
+		// if the robot that moved is at its goal state
 		public boolean individualGoalTest() {
-			if (this.state[robotToMove][0] == robotsGoals[robotToMove][0] && this.state[robotToMove][1] == robotsGoals[robotToMove][1]) {
+			if (this.state[movedRobot][0] == robotsGoals[movedRobot][0] && this.state[movedRobot][1] == robotsGoals[movedRobot][1]) {
 				return true;
 			} else {
 				return false; 
@@ -208,12 +172,21 @@ public class MultiRobotMazeworldProblem extends UUSearchProblem {
 			return this.cost;
 		}
 		
+		public int getPathCost() {
+			return this.pathCost;
+		}
+		
+		public int getHeuristic() {
+			return this.heuristic;
+		}
+		
+		// where the robot that moved to get here is now (robot 0 at the start)
 		public int getx() {
-			return this.state[robotToMove][0];
+			return this.state[movedRobot][0];
 		}
 		
 		public int gety() {
-			return this.state[robotToMove][1];
+			return this.state[movedRobot][1];
 		}
 		
 		// do the 2d arrays have equal values?
@@ -227,43 +200,472 @@ public class MultiRobotMazeworldProblem extends UUSearchProblem {
 			return true;
 		}
 
-		// this hashcode makes sure that each individual state is hashed into the hashtable
-		// with no collisions. We have a multiplier that increases by a factor of 100 for every
-		// index in the state array
+		// mixes the robots' cell indexes, the numbers a packed state holds, so
+		// any fleet size hashes without overflowing into collisions
 		@Override
 		public int hashCode() {
-			int returnInt = 0;
-			int multiplier = 10;
-			for (int i = 0; i < this.state.length; i++) {
-				returnInt += this.state[i][0] * 10 * multiplier + this.state[i][1] * 1 * multiplier;
-				multiplier *= 100;
+			long hash = 0;
+			for (int i = 0; i < state.length; i++) {
+				hash = (hash + state[i][1] * mazeWidth + state[i][0]) * 0x9E3779B97F4A7C15L;
 			}
-			return returnInt;
+			return Long.hashCode(hash ^ (hash >>> 32));
+		}
+	}
+	
+	
+	// true distance from every cell to each robot's goal, from a breadth first 
+	// search backwards from the goal. These are computed once per problem and
+	// make the heuristic both exact per robot and O(1) to update
+	private static int[][] distancesToGoals(Maze m, int[][] goals) {
+		int[][] distances = new int[goals.length][];
+		for (int i = 0; i < goals.length; i++) {
+			distances[i] = m.distancesFrom(goals[i][0], goals[i][1]);
+		}
+		return distances;
+	}
+	
+	// number of moves robot i needs from (x,y) to its goal, ignoring the other 
+	// robots. Cells that can't reach the goal count as width * height, more 
+	// than any real distance
+	private int goalDistance(int robot, int x, int y) {
+		int distance = goalDistances[robot][y * mazeWidth + x];
+		return distance == -1 ? mazeWidth * mazeHeight : distance;
+	}
+	
+	// the heuristic for this search is the sum of the true distances of every
+	// robot to its goal. Robots can block each other, so the sum never 
+	// overestimates
+	private int calculateHeuristic(int[][] positions) {
+		int heuristic = 0;
+		for (int i = 0; i < positions.length; i++) {
+			heuristic += goalDistance(i, positions[i][0], positions[i][1]);
 		}
+		return heuristic;
 	}
 	
+	// bits needed for one cell index in a packed state
+	private int bitsPerCell() {
+		return Math.max(1, 32 - Integer.numberOfLeadingZeros(mazeWidth * mazeHeight - 1));
+	}
+	
+	// packed encoding of the robot positions: robot i's cell index (y * width + x)
+	// takes bitsPerRobot bits. As many robots as fit go in each long, robot i
+	// in word i / robotsPerWord at bit (i % robotsPerWord) * bitsPerRobot, so
+	// no robot straddles two words. A fleet that fits in one long is searched
+	// as a PackedStateSpace, a larger one as a WideStateSpace with a long per
+	// robotsPerWord robots. Any robot may move on any step, so the state is 
+	// just the positions - the same thing MultiMazeWorldNode.equals compares
+	private class PackedRobots implements PackedStateSpace, WideStateSpace {
+		
+		private int robots, bitsPerRobot, robotsPerWord, words;
+		private long cellMask;
+		private long[] start;
+		private long[] successor;   // scratch for the wide successors
+		private int[] goalCells;
+		
+		public PackedRobots(int[][] robotsStart) {
+			robots = robotsStart.length;
+			bitsPerRobot = bitsPerCell();
+			robotsPerWord = 64 / bitsPerRobot;
+			words = Math.max(1, (robots + robotsPerWord - 1) / robotsPerWord);
+			cellMask = (bitsPerRobot == 64) ? -1L : (1L << bitsPerRobot) - 1;
+			start = new long[words];
+			successor = new long[words];
+			goalCells = new int[robots];
+			for (int i = 0; i < robots; i++) {
+				goalCells[i] = robotsGoals[i][1] * mazeWidth + robotsGoals[i][0];
+				start[i / robotsPerWord] |= (long) (robotsStart[i][1] * mazeWidth + robotsStart[i][0]) << shift(i);
+			}
+		}
+		
+		public int words() {
+			return words;
+		}
+		
+		private int shift(int robot) {
+			return (robot % robotsPerWord) * bitsPerRobot;
+		}
+		
+		private int cell(long state, int robot) {
+			return (int) ((state >>> (robot * bitsPerRobot)) & cellMask);
+		}
+		
+		private int cell(long[] state, int robot) {
+			return (int) ((state[robot / robotsPerWord] >>> shift(robot)) & cellMask);
+		}
+		
+		public long startState() {
+			return start[0];
+		}
+		
+		public void startState(long[] state) {
+			System.arraycopy(start, 0, state, 0, words);
+		}
+		
+		public boolean goalTest(long state) {
+			for (int i = 0; i < robots; i++) {
+				if (cell(state, i) != goalCells[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+		
+		public boolean goalTest(long[] state) {
+			for (int i = 0; i < robots; i++) {
+				if (cell(state, i) != goalCells[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+		
+		// sum of the true distances of every robot to its goal
+		public int heuristic(long state) {
+			int heuristic = 0;
+			for (int i = 0; i < robots; i++) {
+				int c = cell(state, i);
+				heuristic += goalDistance(i, c % mazeWidth, c / mazeWidth);
+			}
+			return heuristic;
+		}
+		
+		public int heuristic(long[] state) {
+			int heuristic = 0;
+			for (int i = 0; i < robots; i++) {
+				int c = cell(state, i);
+				heuristic += goalDistance(i, c % mazeWidth, c / mazeWidth);
+			}
+			return heuristic;
+		}
+		
+		// every robot tries up, down, right and left. A move is legal if it stays
+		// in the maze, misses the barriers and doesn't land on another robot. The
+		// successor's heuristic only differs from this state's by the moving 
+		// robot's term
+		public void forEachSuccessor(long state, int heuristic, SuccessorSink sink) {
+			for (int i = 0; i < robots; i++) {
+				int c = cell(state, i);
+				int x = c % mazeWidth;
+				int y = c / mazeWidth;
+				long cleared = state & ~(cellMask << (i * bitsPerRobot));
+				int others = heuristic - goalDistance(i, x, y);
+				tryMove(state, cleared, i, x, y + 1, others, sink);
+				tryMove(state, cleared, i, x, y - 1, others, sink);
+				tryMove(state, cleared, i, x + 1, y, others, sink);
+				tryMove(state, cleared, i, x - 1, y, others, sink);
+			}
+		}
+		
+		private void tryMove(long state, long cleared, int robot, int x, int y, int others, SuccessorSink sink) {
+			if (maze.isBlocked(x, y)) {
+				return;
+			}
+			int target = y * mazeWidth + x;
+			for (int j = 0; j < robots; j++) {
+				if (j != robot && cell(state, j) == target) {
+					return;
+				}
+			}
+			sink.accept(cleared | ((long) target << (robot * bitsPerRobot)), 1, others + goalDistance(robot, x, y));
+		}
+		
+		// the same moves on a wide state, built in the scratch array
+		public void forEachSuccessor(long[] state, int heuristic, WideSuccessorSink sink) {
+			for (int i = 0; i < robots; i++) {
+				int c = cell(state, i);
+				int x = c % mazeWidth;
+				int y = c / mazeWidth;
+				int others = heuristic - goalDistance(i, x, y);
+				tryMove(state, i, x, y + 1, others, sink);
+				tryMove(state, i, x, y - 1, others, sink);
+				tryMove(state, i, x + 1, y, others, sink);
+				tryMove(state, i, x - 1, y, others, sink);
+			}
+		}
+		
+		private void tryMove(long[] state, int robot, int x, int y, int others, WideSuccessorSink sink) {
+			if (maze.isBlocked(x, y)) {
+				return;
+			}
+			int target = y * mazeWidth + x;
+			for (int j = 0; j < robots; j++) {
+				if (j != robot && cell(state, j) == target) {
+					return;
+				}
+			}
+			System.arraycopy(state, 0, successor, 0, words);
+			int word = robot / robotsPerWord;
+			successor[word] = (successor[word] & ~(cellMask << shift(robot))) | ((long) target << shift(robot));
+			sink.accept(successor, 1, others + goalDistance(robot, x, y));
+		}
+		
+		public UUSearchNode toNode(long state, int depth) {
+			int[][] positions = new int[robots][2];
+			for (int i = 0; i < robots; i++) {
+				int c = cell(state, i);
+				positions[i][0] = c % mazeWidth;
+				positions[i][1] = c / mazeWidth;
+			}
+			return new MultiMazeWorldNode(depth, calculateHeuristic(positions), 0, positions);
+		}
+		
+		public UUSearchNode toNode(long[] state, int depth) {
+			int[][] positions = new int[robots][2];
+			for (int i = 0; i < robots; i++) {
+				int c = cell(state, i);
+				positions[i][0] = c % mazeWidth;
+				positions[i][1] = c / mazeWidth;
+			}
+			return new MultiMazeWorldNode(depth, calculateHeuristic(positions), 0, positions);
+		}
+		
+		// the maze, then every robot's start and goal cell in robot order
+		public long checksum() {
+			long sum = maze.checksum();
+			for (int i = 0; i < robots; i++) {
+				sum = sum * 1000003L ^ cell(start, i);
+				sum = sum * 1000003L ^ goalCells[i];
+			}
+			return sum;
+		}
+		
+		public WideStateSpace copy() {
+			return new PackedRobots(robotsStart);
+		}
+	}
+	
+	private PackedRobots getPackedRobots() {
+		if (packedRobots == null) {
+			packedRobots = new PackedRobots(robotsStart);
+		}
+		return packedRobots;
+	}
+	
+	// only fleets whose positions fit in one long; larger ones use the wide encoding
+	@Override
+	protected PackedStateSpace getPackedStateSpace() {
+		return getPackedRobots().words() == 1 ? packedRobots : null;
+	}
+	
+	@Override
+	protected WideStateSpace getWideStateSpace() {
+		return getPackedRobots();
+	}
+	
+	// a step of a coordinate path holds every robot's position, 
+	// {x of robot 0, y of robot 0, x of robot 1, ...}, so a controller can see
+	// which robot moved and where to
+	@Override
+	protected int coordinatesPerStep() {
+		return robotsStart.length * 2;
+	}
+	
+	@Override
+	protected void putCoordinates(UUSearchNode node, int[] path, int offset) {
+		int[][] positions = ((MultiMazeWorldNode) node).state;
+		for (int i = 0; i < positions.length; i++) {
+			path[offset + 2 * i] = positions[i][0];
+			path[offset + 2 * i + 1] = positions[i][1];
+		}
+	}
+	
+	// Independence detection on top of the joint search. Every robot starts in
+	// a group of its own and is planned alone. The group plans are laid side by
+	// side in time (step t of every plan happens at time t) and checked for
+	// conflicts: two robots in one cell, or a robot moving into a cell another
+	// robot was in one step earlier. The second rule covers swaps and keeps the
+	// combined plan playable one move at a time. Two conflicting groups are
+	// merged and planned together with the packed joint search, so robots that
+	// never get in each other's way are never searched jointly. Each group plan
+	// is optimal for its robots, so the total number of moves is optimal too
+	public List<UUSearchNode> independenceDetectionSearch() {
+		System.out.println("\nFinding a path using independence detection...");
+		SearchStats stats = beginStats("independence-detection");
+		int robots = robotsStart.length;
+		
+		// groups.get(g) holds the robots of group g, or null once it was merged away
+		ArrayList<int[]> groups = new ArrayList<int[]>();
+		int[] groupOf = new int[robots];
+		int[][] timed = new int[robots][];
+		for (int i = 0; i < robots; i++) {
+			groups.add(new int[] { i });
+			groupOf[i] = i;
+			if (!planGroup(groups.get(i), timed, stats)) {
+				return finishStats(stats, null);
+			}
+		}
+		
+		int[] conflict;
+		while ((conflict = findConflict(timed, groupOf)) != null) {
+			int keep = groupOf[conflict[0]];
+			int gone = groupOf[conflict[1]];
+			int[] merged = Arrays.copyOf(groups.get(keep), groups.get(keep).length + groups.get(gone).length);
+			System.arraycopy(groups.get(gone), 0, merged, groups.get(keep).length, groups.get(gone).length);
+			groups.set(keep, merged);
+			groups.set(gone, null);
+			for (int i = 0; i < merged.length; i++) {
+				groupOf[merged[i]] = keep;
+			}
+			if (!planGroup(merged, timed, stats)) {
+				return finishStats(stats, null);
+			}
+		}
+		System.out.println("Path Found!");
+		return finishStats(stats, sequence(timed));
+	}
+	
+	// plans the robots of one group together, ignoring every other robot, and
+	// stores their timed cells. Returns false if the group can't reach its goals
+	private boolean planGroup(int[] group, int[][] timed, SearchStats stats) {
+		int[][] starts = new int[group.length][];
+		int[][] goals = new int[group.length][];
+		int[][] distances = new int[group.length][];
+		for (int i = 0; i < group.length; i++) {
+			starts[i] = robotsStart[group[i]];
+			goals[i] = robotsGoals[group[i]];
+			distances[i] = goalDistances[group[i]];
+		}
+		// a group too big for one long is searched with long[] keys
+		MultiRobotMazeworldProblem subproblem = new MultiRobotMazeworldProblem(maze, goals, starts, distances);
+		List<UUSearchNode> path = subproblem.packedAStar();
+		
+		SearchStats groupStats = subproblem.getLastSearchStats();
+		stats.expansions += groupStats.getExpansions();
+		stats.generated += groupStats.getGenerated();
+		stats.duplicates += groupStats.getDuplicates();
+		stats.reopened += groupStats.getReopened();
+		stats.frontier((int) groupStats.getPeakFrontier());
+		stats.visited((int) groupStats.getPeakVisited());
+		if (path == null) {
+			return false;
+		}
+		int[][] cells = subproblem.timedCells(path);
+		for (int i = 0; i < group.length; i++) {
+			timed[group[i]] = cells[i];
+		}
+		return true;
+	}
+	
+	// the cells of every robot along a path from one of the searches (goal 
+	// first), as cells[robot][t] (y * width + x) with t = 0 at the start
+	int[][] timedCells(List<UUSearchNode> path) {
+		int steps = path.size();
+		int[][] cells = new int[robotsStart.length][steps];
+		for (int t = 0; t < steps; t++) {
+			int[][] positions = ((MultiMazeWorldNode) path.get(steps - 1 - t)).state;
+			for (int i = 0; i < positions.length; i++) {
+				cells[i][t] = positions[i][1] * mazeWidth + positions[i][0];
+			}
+		}
+		return cells;
+	}
+	
+	// cell of a robot at time t. Once its plan ends it stays where it stopped
+	private static int cellAt(int[] cells, int t) {
+		return cells[Math.min(t, cells.length - 1)];
+	}
+	
+	// the first conflict between robots of different groups as {robot, robot},
+	// or null if the plans can run side by side
+	private int[] findConflict(int[][] timed, int[] groupOf) {
+		int end = 0;
+		for (int i = 0; i < timed.length; i++) {
+			end = Math.max(end, timed[i].length);
+		}
+		// who is in each cell now and one step earlier, valid if the time 
+		// matches. One scratch array, kept between calls, holds four tables of
+		// a cell each: robot and time now, then robot and time one step earlier
+		int cells = mazeWidth * mazeHeight;
+		if (conflictCells == null) {
+			conflictCells = new int[cells * 4];
+		}
+		int[] seen = conflictCells;
+		Arrays.fill(seen, -1);
+		int now = 0;
+		int before = cells * 2;
+		
+		for (int t = 0; t < end; t++) {
+			for (int i = 0; i < timed.length; i++) {
+				int cell = cellAt(timed[i], t);
+				if (seen[now + cells + cell] == t && groupOf[seen[now + cell]] != groupOf[i]) {
+					return new int[] { seen[now + cell], i };
+				}
+				seen[now + cells + cell] = t;
+				seen[now + cell] = i;
+			}
+			for (int i = 0; i < timed.length && t > 0; i++) {
+				int cell = cellAt(timed[i], t);
+				if (cell != cellAt(timed[i], t - 1) && seen[before + cells + cell] == t - 1 
+						&& groupOf[seen[before + cell]] != groupOf[i]) {
+					return new int[] { seen[before + cell], i };
+				}
+			}
+			int swap = before;
+			before = now;
+			now = swap;
+		}
+		return null;
+	}
+	
+	// turns conflict free timed cells into a goal-to-start path with one move
+	// per node. No robot moves into a cell that was occupied a step earlier, so
+	// the moves of one time step can be made in any order
+	private ArrayList<UUSearchNode> sequence(int[][] timed) {
+		int end = 0;
+		for (int i = 0; i < timed.length; i++) {
+			end = Math.max(end, timed[i].length);
+		}
+		int[][] positions = new int[timed.length][2];
+		for (int i = 0; i < timed.length; i++) {
+			positions[i][0] = timed[i][0] % mazeWidth;
+			positions[i][1] = timed[i][0] / mazeWidth;
+		}
+		ArrayList<UUSearchNode> returnList = new ArrayList<UUSearchNode>();
+		int moves = 0;
+		returnList.add(new MultiMazeWorldNode(moves, calculateHeuristic(positions), 0, positions));
+		for (int t = 1; t < end; t++) {
+			for (int i = 0; i < timed.length; i++) {
+				int cell = cellAt(timed[i], t);
+				if (cell == cellAt(timed[i], t - 1)) {
+					continue;
+				}
+				int[][] next = new int[timed.length][];
+				for (int j = 0; j < timed.length; j++) {
+					next[j] = positions[j].clone();
+				}
+				next[i][0] = cell % mazeWidth;
+				next[i][1] = cell / mazeWidth;
+				positions = next;
+				moves++;
+				returnList.add(new MultiMazeWorldNode(moves, calculateHeuristic(positions), i, positions));
+			}
+		}
+		Collections.reverse(returnList);
+		return returnList;
+	}
 	
 	// this function displays the path
 	public void showPath(List<UUSearchNode> path) {
 		for (int i = path.size() - 1; i >= 0; i--) {
 			MultiMazeWorldNode current = (MultiMazeWorldNode) path.get(i);
-			maze = new Maze(mazeWidth, mazeHeight, barriers);
+			overlay.clear();
 			int[][] currentState = current.state;
 			
 			char currentLetter = 'A';
 			for (int j = 0; j < currentState.length; j++) {
-				maze.setPathNode(currentState[j][0], currentState[j][1], currentLetter);
+				overlay.setPathNode(currentState[j][0], currentState[j][1], currentLetter);
 				currentLetter++;
 			}	
 			
-			maze.displayMaze();
+			overlay.displayMaze();
 			System.out.println("");
 			System.out.println("");
 		}
 	}
 	
 	public void display() {
-		maze.displayMaze();
+		overlay.displayMaze();
 	}
 
 	public static void main(String[] args) {
@@ -321,6 +723,50 @@ public class MultiRobotMazeworldProblem extends UUSearchProblem {
 		System.out.println("");
 		System.out.println("-------------------------------");
 		System.out.println("");
+		
+		MultiRobotMazeworldProblem problem5 = new MultiRobotMazeworldProblem(10, 10, goals2, robots2, barriers2);
+		problem5.display();
+		List<UUSearchNode> path5 = problem5.packedAStarSearch();
+		System.out.println("");
+		problem5.showPath(path5);
+		
+		System.out.println("");
+		System.out.println("-------------------------------");
+		System.out.println("");
+		
+		// eight robots that each cross the maze in their own row never meet, so
+		// independence detection plans them one by one
+		int[][] robots6 = new int[8][];
+		int[][] goals6 = new int[8][];
+		for (int i = 0; i < 8; i++) {
+			robots6[i] = new int[] { 0, i * 2 };
+			goals6[i] = new int[] { 15, i * 2 };
+		}
+		MultiRobotMazeworldProblem problem6 = new MultiRobotMazeworldProblem(16, 16, goals6, robots6, barriers4);
+		List<UUSearchNode> path6 = problem6.independenceDetectionSearch();
+		System.out.println((path6.size() - 1) + " moves");
+		problem6.printStats();
+		
+		MultiRobotMazeworldProblem problem7 = new MultiRobotMazeworldProblem(10, 10, goals2, robots2, barriers2);
+		List<UUSearchNode> path7 = problem7.independenceDetectionSearch();
+		System.out.println((path7.size() - 1) + " moves");
+		problem7.printStats();
+
+		
+		// six robots on a 20x20 map with a 50ms budget: the anytime search 
+		// reports each better plan with how far from optimal it can be
+		MazeGenerator generator = new MazeGenerator(20, 20, 0.3, 11);
+		int[][] cells = generator.freeCells(12);
+		MultiRobotMazeworldProblem problem8 = new MultiRobotMazeworldProblem(generator.getMaze(), 
+				Arrays.copyOfRange(cells, 6, 12), Arrays.copyOfRange(cells, 0, 6));
+		SearchControl control = new SearchControl().setTimeout(50, TimeUnit.MILLISECONDS);
+		List<UUSearchNode> path8 = problem8.anytimeSearch(3.0, control, new SolutionListener() {
+			public void solutionFound(int[] path, int cost, double bound) {
+				System.out.printf("%d moves, at most %.2f times the optimal%n", cost, bound);
+			}
+		});
+		System.out.println((path8 == null ? "no path" : (path8.size() - 1) + " moves") 
+				+ (control.getStopReason() == null ? "" : ", stopped: " + control.getStopReason()));
 	}
 	
 }
@@ -0,0 +1,269 @@
+// This is a level synchronous breadth first search for a single robot on a
+// grid, for distance fields over maps too big to walk one cell at a time. The
+// frontier of one level is an int array of cells; it is cut into chunks that
+// a ForkJoinPool expands in parallel, each chunk collecting the cells it
+// reaches in its own buffer. The buffers are joined in chunk order into the
+// next level's frontier, and the next level starts only when the whole level
+// is done, so every cell gets the same distance as in a sequential search.
+//
+// A cell is claimed through a shared bitset of atomic longs: the chunk whose
+// compare-and-set flips the cell's bit owns it and is the only one to write
+// its distance and parent, so the int arrays need no locking. Which chunk
+// gets there first depends on timing, so the owner does not just make itself
+// the parent; it takes the first neighbor one level closer in the fixed
+// order down, up, right, left. The path is then the same whatever the number
+// of threads.
+
+package mazeworld;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class ParallelGridBFS {
+
+	// frontier cells per chunk. A chunk reaches at most four new cells per cell
+	private static final int CHUNK = 1024;
+
+	private final Maze maze;
+	private final int width, height;
+	private final ForkJoinPool pool;
+
+	private AtomicLongArray visited;   // bit (y * width + x) is set once the cell is claimed
+	private int[] distance;            // moves from the start, -1 if not reached
+	private int[] parent;              // previous cell on the path, -1 for the start
+	private int[] frontier = new int[CHUNK];
+	private int[] nextFrontier = new int[CHUNK];
+	private int frontierSize;
+	private int depth;                 // distance of the cells in frontier
+
+	// per chunk of the current level: the cells it claimed, and its counters
+	private int[][] reached = new int[0][];
+	private int[] reachedCount = new int[0];
+	private long[] generated = new long[0];
+
+	private SearchStats stats;
+
+	public ParallelGridBFS(Maze m) {
+		this(m, ForkJoinPool.commonPool());
+	}
+
+	// a Maze is immutable, so one maze can be shared with other searches
+	public ParallelGridBFS(Maze m, ForkJoinPool p) {
+		maze = m;
+		width = m.getWidth();
+		height = m.getHeight();
+		pool = p;
+	}
+
+	public int cellOf(int x, int y) {
+		return y * width + x;
+	}
+
+	// the stats of the most recent search
+	public SearchStats getLastSearchStats() {
+		return stats;
+	}
+
+	// breadth first search over the whole maze from (x,y). Returns the number of
+	// moves from (x,y) to every cell, indexed by y * width + x, with -1 for
+	// barriers and cells that can't be reached, the same table as
+	// Maze.distancesFrom. pathTo can then give the path to any reached cell
+	public int[] distancesFrom(int x, int y) {
+		search(cellOf(x, y), -1);
+		stats.finish(0, false);
+		return distance;
+	}
+
+	// breadth first search from start to goal that stops after the level the goal
+	// is on. Returns the path in order from start to goal, or null if the goal
+	// can't be reached
+	public int[] breadthFirst(int start, int goal) {
+		search(start, goal);
+		int[] path = pathTo(goal);
+		stats.finish(path == null ? 0 : path.length, path != null);
+		return path;
+	}
+
+	// the path from the last search's start to cell, or null if that search did
+	// not reach it
+	public int[] pathTo(int cell) {
+		if (distance == null || distance[cell] == -1) {
+			return null;
+		}
+		int[] path = new int[distance[cell] + 1];
+		for (int i = path.length - 1; i >= 0; i--) {
+			path[i] = cell;
+			cell = parent[cell];
+		}
+		return path;
+	}
+
+	// runs levels until the frontier is empty or the goal (if not -1) is reached
+	private void search(int start, int goal) {
+		stats = new SearchStats("ParallelGridBFS", "parallel-bfs");
+		int cells = width * height;
+		visited = new AtomicLongArray((cells + 63) >>> 6);
+		distance = new int[cells];
+		parent = new int[cells];
+		Arrays.fill(distance, -1);
+		if (maze.isBlocked(start)) {
+			return;
+		}
+
+		visited.set(start >>> 6, 1L << start);
+		distance[start] = 0;
+		parent[start] = -1;
+		frontier[0] = start;
+		frontierSize = 1;
+		depth = 0;
+		long total = 1;
+
+		while (frontierSize > 0 && (goal == -1 || distance[goal] == -1)) {
+			stats.frontier(frontierSize);
+			stats.expansions += frontierSize;
+			int chunks = (frontierSize + CHUNK - 1) / CHUNK;
+			if (reached.length < chunks) {
+				reached = Arrays.copyOf(reached, Math.max(chunks, reached.length * 2));
+				reachedCount = new int[reached.length];
+				generated = new long[reached.length];
+			}
+			pool.invoke(new LevelTask(0, chunks));
+
+			// the next frontier is the chunks' cells in chunk order
+			int size = 0;
+			for (int c = 0; c < chunks; c++) {
+				size += reachedCount[c];
+				stats.generated += generated[c];
+			}
+			if (nextFrontier.length < size) {
+				nextFrontier = new int[Math.max(size, nextFrontier.length * 2)];
+			}
+			size = 0;
+			for (int c = 0; c < chunks; c++) {
+				System.arraycopy(reached[c], 0, nextFrontier, size, reachedCount[c]);
+				size += reachedCount[c];
+			}
+			int[] swap = frontier;
+			frontier = nextFrontier;
+			nextFrontier = swap;
+			frontierSize = size;
+			depth++;
+			total += size;
+		}
+		stats.duplicates = stats.generated - (total - 1);
+		stats.visited((int) Math.min(Integer.MAX_VALUE, total));
+	}
+
+	// expands one chunk of the frontier
+	private void expandChunk(int chunk) {
+		int from = chunk * CHUNK;
+		int to = Math.min(from + CHUNK, frontierSize);
+		int[] out = reached[chunk];
+		if (out == null) {
+			out = new int[CHUNK * 4];
+			reached[chunk] = out;
+		}
+		int count = 0;
+		long tried = 0;
+		for (int i = from; i < to; i++) {
+			int cell = frontier[i];
+			int x = cell % width;
+			int y = cell / width;
+			if (!maze.isBlocked(x, y + 1)) { tried++; if (claim(cell + width)) { out[count++] = cell + width; } }
+			if (!maze.isBlocked(x, y - 1)) { tried++; if (claim(cell - width)) { out[count++] = cell - width; } }
+			if (!maze.isBlocked(x + 1, y)) { tried++; if (claim(cell + 1)) { out[count++] = cell + 1; } }
+			if (!maze.isBlocked(x - 1, y)) { tried++; if (claim(cell - 1)) { out[count++] = cell - 1; } }
+		}
+		reachedCount[chunk] = count;
+		generated[chunk] = tried;
+	}
+
+	// flips the cell's visited bit. If this call flipped it, the cell is ours:
+	// it gets its distance and its parent, the first neighbor on the current
+	// level in the order down, up, right, left
+	private boolean claim(int cell) {
+		int word = cell >>> 6;
+		long bit = 1L << cell;
+		long old = visited.get(word);
+		while ((old & bit) == 0) {
+			if (visited.compareAndSet(word, old, old | bit)) {
+				distance[cell] = depth + 1;
+				parent[cell] = closerNeighbor(cell);
+				return true;
+			}
+			old = visited.get(word);
+		}
+		return false;
+	}
+
+	// cells on the current level were all written before the level started;
+	// the only writes racing with these reads put depth + 1 into -1 entries,
+	// which can't make a cell look like it is on the current level
+	private int closerNeighbor(int cell) {
+		int x = cell % width;
+		int y = cell / width;
+		if (!maze.isBlocked(x, y + 1) && distance[cell + width] == depth) {
+			return cell + width;
+		}
+		if (!maze.isBlocked(x, y - 1) && distance[cell - width] == depth) {
+			return cell - width;
+		}
+		if (!maze.isBlocked(x + 1, y) && distance[cell + 1] == depth) {
+			return cell + 1;
+		}
+		return cell - 1;
+	}
+
+	// expands chunks [from, to) of the current level
+	private class LevelTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private int from, to;
+
+		public LevelTask(int f, int t) {
+			from = f;
+			to = t;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from == 1) {
+				expandChunk(from);
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new LevelTask(from, middle), new LevelTask(middle, to));
+		}
+	}
+
+	public static void main(String[] args) {
+		// a 3200x3200 map, just over ten million cells
+		MazeGenerator generator = new MazeGenerator(3200, 3200, 0.2, 1);
+		Maze maze = generator.getMaze();
+		int[][] cells = generator.freeCells(2);
+
+		long started = System.nanoTime();
+		int[] expected = maze.distancesFrom(cells[0][0], cells[0][1]);
+		System.out.printf("sequential: %.1f ms%n", (System.nanoTime() - started) / 1e6);
+
+		int[] path = null;
+		int cores = Runtime.getRuntime().availableProcessors();
+		for (int threads = 1; threads <= cores; threads *= 2) {
+			ForkJoinPool pool = new ForkJoinPool(threads);
+			ParallelGridBFS search = new ParallelGridBFS(maze, pool);
+			search.distancesFrom(cells[0][0], cells[0][1]);   // warm up
+			started = System.nanoTime();
+			int[] distances = search.distancesFrom(cells[0][0], cells[0][1]);
+			double millis = (System.nanoTime() - started) / 1e6;
+			int[] p = search.pathTo(search.cellOf(cells[1][0], cells[1][1]));
+			System.out.printf("%2d threads: %.1f ms, distances %s, path %s%n", threads, millis,
+					Arrays.equals(distances, expected) ? "match" : "DIFFER",
+					path == null || Arrays.equals(path, p) ? "same" : "DIFFERS");
+			path = p;
+			pool.shutdown();
+		}
+	}
+}
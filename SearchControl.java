@@ -0,0 +1,78 @@
+// This tells a running search when to stop and who to report to. A search
+// checks it once per expansion: it stops when the control is cancelled (from
+// any thread), when the deadline has passed or when the expansion budget is
+// used up, and every progressInterval expansions it sends a progress event to
+// the listener. A control belongs to one search and can't be reused.
+
+package mazeworld;
+
+import java.util.concurrent.TimeUnit;
+
+public class SearchControl {
+
+	private volatile boolean cancelled;
+	private long deadline;            // System.nanoTime() to stop at, if hasDeadline
+	private boolean hasDeadline;
+	private long maxExpansions = Long.MAX_VALUE;
+	private int progressInterval = 1024;
+	private SearchListener listener;
+	private volatile SearchHandle.Status stopped;   // why the search stopped early, or null
+
+	// asks the search to stop at its next expansion. Safe to call from any thread
+	public void cancel() {
+		cancelled = true;
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	// stop the search once it has run for this long from now
+	public SearchControl setTimeout(long timeout, TimeUnit unit) {
+		deadline = System.nanoTime() + unit.toNanos(timeout);
+		hasDeadline = true;
+		return this;
+	}
+
+	// stop the search after this many expansions
+	public SearchControl setExpansionBudget(long expansions) {
+		maxExpansions = expansions;
+		return this;
+	}
+
+	public SearchControl setListener(SearchListener l) {
+		listener = l;
+		return this;
+	}
+
+	// expansions between two progress events
+	public SearchControl setProgressInterval(int interval) {
+		progressInterval = Math.max(1, interval);
+		return this;
+	}
+
+	// the reason the search stopped before it finished, or null if it didn't
+	public SearchHandle.Status getStopReason() {
+		return stopped;
+	}
+
+	// called by the search before every expansion with the number of expansions
+	// so far and the priority of the node about to be expanded. Returns false
+	// if the search has to stop. The clock is only read every 64 expansions
+	boolean expand(long expansions, int priority) {
+		if (cancelled) {
+			stopped = SearchHandle.Status.CANCELLED;
+		} else if (expansions >= maxExpansions) {
+			stopped = SearchHandle.Status.BUDGET_EXCEEDED;
+		} else if (hasDeadline && (expansions & 63) == 0 && System.nanoTime() - deadline >= 0) {
+			stopped = SearchHandle.Status.DEADLINE_EXCEEDED;
+		}
+		if (stopped != null) {
+			return false;
+		}
+		if (listener != null && expansions % progressInterval == 0) {
+			listener.progress(expansions, priority);
+		}
+		return true;
+	}
+}
@@ -0,0 +1,86 @@
+// This is the handle of a search started in the background by one of the
+// UUSearchProblem.start... methods. It can cancel the search, wait for it and
+// hand over the result, which is the path as a forward ordered array of
+// coordinates: {x0, y0, x1, y1, ...} from the start to the goal. For the multi
+// robot problem each step holds the positions of all the robots in robot 
+// order, {x of robot 0, y of robot 0, x of robot 1, ...}, so a step takes
+// 2 * robots ints and the robot that moved is the one whose position changed.
+
+package mazeworld;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class SearchHandle {
+
+	public enum Status {
+		RUNNING, FOUND, NOT_FOUND, CANCELLED, DEADLINE_EXCEEDED, BUDGET_EXCEEDED, FAILED
+	}
+
+	private final SearchControl control;
+	private final CountDownLatch done = new CountDownLatch(1);
+	private volatile Status status = Status.RUNNING;
+	private volatile int[] path;
+	private volatile SearchStats stats;
+	private volatile Throwable failure;
+
+	SearchHandle(SearchControl c) {
+		control = c;
+	}
+
+	// asks the search to stop. It stops at its next expansion with the status
+	// CANCELLED, unless it had already finished
+	public void cancel() {
+		control.cancel();
+	}
+
+	public boolean isDone() {
+		return done.getCount() == 0;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	// waits for the search and returns the path, or null if no path was found
+	// (see getStatus for why)
+	public int[] await() throws InterruptedException {
+		done.await();
+		return path;
+	}
+
+	// like await(), but gives up waiting after the timeout and returns null.
+	// The search keeps running unless it is cancelled
+	public int[] await(long timeout, TimeUnit unit) throws InterruptedException {
+		done.await(timeout, unit);
+		return path;
+	}
+
+	// the path, or null while the search runs or if it found none
+	public int[] getPath() {
+		return path;
+	}
+
+	// the stats of the finished search, or null while it runs
+	public SearchStats getStats() {
+		return stats;
+	}
+
+	// the exception the search died of, if its status is FAILED
+	public Throwable getFailure() {
+		return failure;
+	}
+
+	void complete(Status s, int[] p, SearchStats st) {
+		path = p;
+		stats = st;
+		status = s;
+		done.countDown();
+	}
+
+	void fail(Throwable t) {
+		failure = t;
+		status = Status.FAILED;
+		done.countDown();
+	}
+}
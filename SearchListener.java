@@ -0,0 +1,13 @@
+// This receives progress events from a search running under a SearchControl.
+// The events come from the searching thread, so a listener has to be quick
+// and has to hand anything it wants to keep to other threads safely.
+
+package mazeworld;
+
+public interface SearchListener {
+
+	// expansions so far and the priority of the node being expanded. For A*
+	// with a consistent heuristic that is the best f on the frontier, a lower
+	// bound on the cost of any path still to be found
+	public void progress(long expansions, int bestPriority);
+}
@@ -0,0 +1,131 @@
+// This holds the instrumentation of one search run. The search loops bump the
+// counters directly (plain long fields, no synchronization), so collecting
+// them is cheap enough to leave on. A finished record can be printed or
+// written out as one JSON object per line for the dashboards.
+
+package mazeworld;
+
+import java.io.IOException;
+
+public class SearchStats {
+
+	private String problem;
+	private String search;
+
+	// counters written by the search loops in this package
+	long expansions;        // nodes taken off the frontier and expanded
+	long generated;         // successors produced by those expansions
+	long duplicates;        // successors that had already been reached
+	long peakFrontier;      // largest frontier size seen
+	long peakVisited;       // largest number of states held in the visited tables
+	long reopened;          // closed states put back on the frontier at a lower cost
+
+	private long startNanos;
+	private long wallNanos;
+	private boolean found;
+	private int pathLength;
+
+	public SearchStats(String problem, String search) {
+		this.problem = problem;
+		this.search = search;
+		startNanos = System.nanoTime();
+	}
+
+	// stops the clock and records the outcome. path may be null
+	void finish(int length, boolean pathFound) {
+		wallNanos = System.nanoTime() - startNanos;
+		found = pathFound;
+		pathLength = pathFound ? length : -1;
+	}
+
+	// update the peak frontier size
+	void frontier(int size) {
+		if (size > peakFrontier) {
+			peakFrontier = size;
+		}
+	}
+
+	// update the peak visited size
+	void visited(int size) {
+		if (size > peakVisited) {
+			peakVisited = size;
+		}
+	}
+
+	public String getProblem() {
+		return problem;
+	}
+
+	public String getSearch() {
+		return search;
+	}
+
+	public boolean isFound() {
+		return found;
+	}
+
+	public int getPathLength() {
+		return pathLength;
+	}
+
+	public long getExpansions() {
+		return expansions;
+	}
+
+	public long getGenerated() {
+		return generated;
+	}
+
+	public long getDuplicates() {
+		return duplicates;
+	}
+
+	public long getPeakFrontier() {
+		return peakFrontier;
+	}
+
+	public long getPeakVisited() {
+		return peakVisited;
+	}
+
+	public long getReopened() {
+		return reopened;
+	}
+
+	public long getWallNanos() {
+		return wallNanos;
+	}
+
+	public double getNanosPerExpansion() {
+		return expansions == 0 ? 0 : (double) wallNanos / expansions;
+	}
+
+	// the record as a single line JSON object
+	public String toJson() {
+		StringBuilder json = new StringBuilder(256);
+		json.append("{\"problem\":\"").append(problem).append('"');
+		json.append(",\"search\":\"").append(search).append('"');
+		json.append(",\"found\":").append(found);
+		json.append(",\"pathLength\":").append(pathLength);
+		json.append(",\"expansions\":").append(expansions);
+		json.append(",\"generated\":").append(generated);
+		json.append(",\"duplicates\":").append(duplicates);
+		json.append(",\"peakFrontier\":").append(peakFrontier);
+		json.append(",\"peakVisited\":").append(peakVisited);
+		json.append(",\"reopened\":").append(reopened);
+		json.append(",\"wallNanos\":").append(wallNanos);
+		json.append(",\"nanosPerExpansion\":").append(Math.round(getNanosPerExpansion() * 10) / 10.0);
+		json.append('}');
+		return json.toString();
+	}
+
+	// append the record to a JSON lines stream
+	public void writeJsonLine(Appendable out) throws IOException {
+		out.append(toJson()).append('\n');
+	}
+
+	@Override
+	public String toString() {
+		return toJson();
+	}
+}
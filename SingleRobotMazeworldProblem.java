@@ -8,35 +8,54 @@ package mazeworld;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 public class SingleRobotMazeworldProblem extends UUSearchProblem {
 	
 	private int goalx, goaly, mazeWidth, mazeHeight;
 	private Maze maze;
+	private MazeOverlay overlay;      // start, goal and path marks for display
+	private GridAStar packedSearch;   // created on the first packed search and reused
+	private JumpPointSearch jumpSearch;
+	private ParallelGridBFS parallelSearch;
+	private LandmarkHeuristic landmarks;   // if set, used instead of the manhattan distance
+	private PackedCells packedCells;
 
 	public SingleRobotMazeworldProblem(int width, int height, int gx, int gy, int startx, int starty, int[][] barriers) {
-		startNode = new MazeWorldNode(startx, starty, 0);
+		this(new Maze(width, height, barriers), gx, gy, startx, starty);
+	}
+	
+	// a problem on an existing maze. The maze is only read, so it can be shared
+	// with other problems
+	public SingleRobotMazeworldProblem(Maze m, int gx, int gy, int startx, int starty) {
 		goalx = gx;
 		goaly = gy;
-		mazeWidth = width;
-		mazeHeight = height;
-		maze = new Maze(mazeWidth, mazeHeight, barriers);
+		maze = m;
+		mazeWidth = maze.getWidth();
+		mazeHeight = maze.getHeight();
+		startNode = new MazeWorldNode(startx, starty, 0);
+		overlay = new MazeOverlay(maze);
 		
 		// indicate the start and end goal on the maze
-		maze.setPathNode(startx, starty, 's');
-		maze.setPathNode(goalx, goaly, 'g');
+		overlay.setPathNode(startx, starty, 's');
+		overlay.setPathNode(goalx, goaly, 'g');
 	}
 	
 	private class MazeWorldNode implements UUSearchNode {
 	
 		private int[] state;  // holds (x,y) cord of the current node
-		private int depth;  
+		private int pathCost, heuristic;  // moves from the start, and the estimate to the goal
 
-		public MazeWorldNode(int x, int y, int d) {
+		public MazeWorldNode(int x, int y, int g) {
+			this(x, y, g, 0);
+		}
+		
+		public MazeWorldNode(int x, int y, int g, int h) {
 			state = new int[2];
 			this.state[0] = x;
 			this.state[1] = y;	
-			depth = d;
+			pathCost = g;
+			heuristic = h;
 		}
 		
 		// Function returns all possible successors of the current node in an ArrayList
@@ -45,12 +64,12 @@ public class SingleRobotMazeworldProblem extends UUSearchProblem {
 		// is a safe state. This is used for BFS
 		public ArrayList<UUSearchNode> getSuccessors() {
 			ArrayList<UUSearchNode> successors = new ArrayList<UUSearchNode>();
-			int newDepth = depth + 1;
+			int newCost = pathCost + 1;
 			
-			MazeWorldNode topSuccessor = new MazeWorldNode(this.state[0], this.state[1] + 1, newDepth);
-			MazeWorldNode bottomSuccessor = new MazeWorldNode(this.state[0], this.state[1] - 1, newDepth);
-			MazeWorldNode rightSuccessor = new MazeWorldNode(this.state[0] + 1, this.state[1], newDepth);
-			MazeWorldNode leftSuccessor = new MazeWorldNode(this.state[0] - 1, this.state[1], newDepth);
+			MazeWorldNode topSuccessor = new MazeWorldNode(this.state[0], this.state[1] + 1, newCost);
+			MazeWorldNode bottomSuccessor = new MazeWorldNode(this.state[0], this.state[1] - 1, newCost);
+			MazeWorldNode rightSuccessor = new MazeWorldNode(this.state[0] + 1, this.state[1], newCost);
+			MazeWorldNode leftSuccessor = new MazeWorldNode(this.state[0] - 1, this.state[1], newCost);
 			
 			if (topSuccessor.isStateSafe()) { successors.add(topSuccessor); }
 			if (bottomSuccessor.isStateSafe()) { successors.add(bottomSuccessor); }
@@ -62,22 +81,23 @@ public class SingleRobotMazeworldProblem extends UUSearchProblem {
 		
 		// getSuccessorsWithHeuristic is used for the A* Search. Like the regular getSuccessors,
 		// it produces all legal and safe successors for the current node (up, down, left, right).
-		// the cost of the new state is (predecessors cost + 1 + the heuristic of the new state)
+		// the cost of the new state is (predecessors path cost + 1 + the heuristic of the 
+		// new state). Only the path cost is passed on, so the heuristic doesn't add up
 		public ArrayList<UUSearchNode> getSuccessorsWithHeuristic() {
 			ArrayList<UUSearchNode> successors = new ArrayList<UUSearchNode>();
-			int newDepth = depth + 1;
+			int newCost = pathCost + 1;
 			
 			MazeWorldNode topSuccessor = new MazeWorldNode(this.state[0], this.state[1] + 1, 
-					newDepth + calculateManhattanHeuristic(this.state[0], this.state[1] + 1));
+					newCost, calculateHeuristic(this.state[0], this.state[1] + 1));
 			
 			MazeWorldNode bottomSuccessor = new MazeWorldNode(this.state[0], this.state[1] - 1, 
-					newDepth + calculateManhattanHeuristic(this.state[0], this.state[1] - 1));
+					newCost, calculateHeuristic(this.state[0], this.state[1] - 1));
 			
 			MazeWorldNode rightSuccessor = new MazeWorldNode(this.state[0] + 1, this.state[1], 
-					newDepth + calculateManhattanHeuristic(this.state[0] + 1, this.state[1]));
+					newCost, calculateHeuristic(this.state[0] + 1, this.state[1]));
 			
 			MazeWorldNode leftSuccessor = new MazeWorldNode(this.state[0] - 1, this.state[1], 
-					newDepth + calculateManhattanHeuristic(this.state[0] - 1, this.state[1]));
+					newCost, calculateHeuristic(this.state[0] - 1, this.state[1]));
 			
 			if (topSuccessor.isStateSafe()) { successors.add(topSuccessor); }
 			if (bottomSuccessor.isStateSafe()) { successors.add(bottomSuccessor); }
@@ -87,16 +107,6 @@ public class SingleRobotMazeworldProblem extends UUSearchProblem {
 			return successors;
 		}
 		
-		// for the single robot, the manhattan heuristic is a simple heuristic
-		// that produces optimal paths. It is simply the right triangle x and y 
-		// distance from the node to the goal;
-		public int calculateManhattanHeuristic(int x, int y) {
-			int xDist = Math.abs(goalx - x);
-			int yDist = Math.abs(goaly - y);
-			
-			return (xDist + yDist);
-		}
-		
 		// test to see if the total goal has been accomplished
 		@Override
 		public boolean goalTest() {
@@ -117,9 +127,17 @@ public class SingleRobotMazeworldProblem extends UUSearchProblem {
 			}
 		}
 		
-		// return the depth of the current node
+		// return the depth of the current node (path cost plus heuristic)
 		public int getDepth() {
-			return this.depth;
+			return this.pathCost + this.heuristic;
+		}
+		
+		public int getPathCost() {
+			return this.pathCost;
+		}
+		
+		public int getHeuristic() {
+			return this.heuristic;
 		}
 		
 		// return the x cord of the current node
@@ -132,16 +150,10 @@ public class SingleRobotMazeworldProblem extends UUSearchProblem {
 			return this.state[1];
 		}
 		
-		// checks if the new state (successor) is safe - if the x and y coordinates are greater
-		// than zero and less than the width/height of the maze and if the new state does not have a 
-		// barrier, then it is safe
+		// checks if the new state (successor) is safe - if the x and y coordinates are inside
+		// the maze and the new state does not have a barrier, then it is safe
 		private boolean isStateSafe() {
-			if (this.state[1] < mazeHeight && this.state[1] >= 0 &&this.state[0] >= 0 && 
-					this.state[0] < mazeWidth && maze.getMazeState(this.state[0], this.state[1]) != '#') {
-				return true;
-			} else {
-				return false; 
-			}
+			return !maze.isBlocked(this.state[0], this.state[1]);
 		}
 
 		
@@ -152,8 +164,177 @@ public class SingleRobotMazeworldProblem extends UUSearchProblem {
 
 		@Override
 		public int hashCode() {
-			return state[0] * 100 + state[1] * 10;
+			return state[1] * mazeWidth + state[0];
+		}
+	}
+	
+	// for the single robot, the manhattan heuristic is a simple heuristic
+	// that produces optimal paths. It is simply the right triangle x and y 
+	// distance from the node to the goal. With landmarks set, the landmark 
+	// bound is used instead, which is never lower and accounts for barriers
+	// (successors are scored before they are checked, so only cells a robot
+	// can stand on go to the landmark tables)
+	private int calculateHeuristic(int x, int y) {
+		if (landmarks != null && !maze.isBlocked(x, y)) {
+			return landmarks.estimate(x, y, goalx, goaly);
+		}
+		int xDist = Math.abs(goalx - x);
+		int yDist = Math.abs(goaly - y);
+		
+		return (xDist + yDist);
+	}
+	
+	// the state space behind breadthFirstSearch and AStarSearch: a state is the
+	// robot's cell index. Blocked cells are skipped before the sink is called,
+	// so an expansion creates no nodes
+	private class PackedCells implements PackedStateSpace {
+		
+		public long startState() {
+			MazeWorldNode start = (MazeWorldNode) startNode;
+			return start.gety() * mazeWidth + start.getx();
+		}
+		
+		public boolean goalTest(long state) {
+			return state == goaly * mazeWidth + goalx;
+		}
+		
+		public int heuristic(long state) {
+			return calculateHeuristic((int) state % mazeWidth, (int) state / mazeWidth);
+		}
+		
+		public void forEachSuccessor(long state, int heuristic, SuccessorSink sink) {
+			int x = (int) state % mazeWidth;
+			int y = (int) state / mazeWidth;
+			tryMove(x, y + 1, sink);
+			tryMove(x, y - 1, sink);
+			tryMove(x + 1, y, sink);
+			tryMove(x - 1, y, sink);
+		}
+		
+		private void tryMove(int x, int y, SuccessorSink sink) {
+			if (!maze.isBlocked(x, y)) {
+				sink.accept(y * mazeWidth + x, 1, calculateHeuristic(x, y));
+			}
+		}
+		
+		public UUSearchNode toNode(long state, int depth) {
+			return new MazeWorldNode((int) state % mazeWidth, (int) state / mazeWidth, depth);
+		}
+		
+		public long checksum() {
+			long sum = maze.checksum() * 1000003L ^ startState();
+			return sum * 1000003L ^ (goaly * mazeWidth + goalx);
+		}
+	}
+	
+	@Override
+	protected PackedStateSpace getPackedStateSpace() {
+		if (packedCells == null) {
+			packedCells = new PackedCells();
 		}
+		return packedCells;
+	}
+	
+	// packed variant of AStarSearch: every state is a single int cell index and
+	// the search bookkeeping is kept in flat arrays (see GridAStar), so it does not
+	// allocate per node. The path is returned in the same goal-to-start order as
+	// AStarSearch, so showPath works on it unchanged
+	public List<UUSearchNode> packedAStarSearch() {
+		GridAStar search = getPackedSearch();
+		MazeWorldNode start = (MazeWorldNode) startNode;
+		resetStats();
+		int[] cells = search.aStar(search.cellOf(start.getx(), start.gety()), search.cellOf(goalx, goaly));
+		publishStats(search.getLastSearchStats());
+		return toNodes(cells);
+	}
+	
+	// packed variant of breadthFirstSearch
+	public List<UUSearchNode> packedBreadthFirstSearch() {
+		GridAStar search = getPackedSearch();
+		MazeWorldNode start = (MazeWorldNode) startNode;
+		resetStats();
+		int[] cells = search.breadthFirst(search.cellOf(start.getx(), start.gety()), search.cellOf(goalx, goaly));
+		publishStats(search.getLastSearchStats());
+		return toNodes(cells);
+	}
+	
+	// breadthFirstSearch with each level of the frontier expanded in parallel on
+	// the common ForkJoinPool (see ParallelGridBFS). The path has the same length
+	public List<UUSearchNode> parallelBreadthFirstSearch() {
+		if (parallelSearch == null) {
+			parallelSearch = new ParallelGridBFS(maze);
+		}
+		MazeWorldNode start = (MazeWorldNode) startNode;
+		resetStats();
+		int[] cells = parallelSearch.breadthFirst(parallelSearch.cellOf(start.getx(), start.gety()),
+				parallelSearch.cellOf(goalx, goaly));
+		publishStats(parallelSearch.getLastSearchStats());
+		return toNodes(cells);
+	}
+	
+	// reads the path off the goal's distance field instead of searching. Problems
+	// on the same maze and goal share one field (and one breadth first search)
+	// through the cache
+	public List<UUSearchNode> distanceFieldSearch(DistanceFieldCache cache) {
+		MazeWorldNode start = (MazeWorldNode) startNode;
+		SearchStats stats = beginStats("distance-field");
+		int[] cells = cache.get(maze, goalx, goaly).pathFrom(start.getx(), start.gety());
+		return finishStats(stats, toNodes(cells));
+	}
+	
+	// use precomputed landmark (ALT) tables as the heuristic of AStarSearch and
+	// packedAStarSearch. The tables must belong to this problem's maze
+	public void setLandmarkHeuristic(LandmarkHeuristic l) {
+		if (l != null && !l.matches(maze)) {
+			throw new IllegalArgumentException("landmark tables belong to a different maze");
+		}
+		landmarks = l;
+		if (packedSearch != null) {
+			packedSearch.setLandmarks(l);
+		}
+	}
+	
+	// Jump Point Search alternative to AStarSearch. It finds paths of the same
+	// length but only expands the cells where a shortest path may turn, which on
+	// open maps is a small fraction of what A* expands
+	public List<UUSearchNode> jumpPointSearch() {
+		System.out.println("\nFinding a path using Jump Point Search...");
+		if (jumpSearch == null) {
+			jumpSearch = new JumpPointSearch(maze);
+		}
+		MazeWorldNode start = (MazeWorldNode) startNode;
+		resetStats();
+		int[] cells = jumpSearch.search(jumpSearch.cellOf(start.getx(), start.gety()), jumpSearch.cellOf(goalx, goaly));
+		publishStats(jumpSearch.getLastSearchStats());
+		return toNodes(cells);
+	}
+	
+	private GridAStar getPackedSearch() {
+		if (packedSearch == null) {
+			packedSearch = new GridAStar(maze);
+			packedSearch.setLandmarks(landmarks);
+		}
+		return packedSearch;
+	}
+	
+	// turn a start-to-goal array of cells into the goal-to-start node list that
+	// the other searches return. Nodes are only created for the final path
+	private List<UUSearchNode> toNodes(int[] cells) {
+		if (cells == null) {
+			return null;
+		}
+		ArrayList<UUSearchNode> path = new ArrayList<UUSearchNode>(cells.length);
+		for (int i = cells.length - 1; i >= 0; i--) {
+			path.add(new MazeWorldNode(cells[i] % mazeWidth, cells[i] / mazeWidth, i));
+		}
+		return path;
+	}
+	
+	// moves can always be undone, so the goal cell works as the start of a
+	// backward search
+	@Override
+	protected UUSearchNode getGoalNode() {
+		return new MazeWorldNode(goalx, goaly, 0);
 	}
 	
 	// this method shows the path after it has been found by a serach algorithm.
@@ -163,9 +344,9 @@ public class SingleRobotMazeworldProblem extends UUSearchProblem {
 			UUSearchNode current = path.get(i);
 			int x = current.getx();
 			int y = current.gety();
-			maze.setPathNode(x, y, 'o');
+			overlay.setPathNode(x, y, 'o');
 		}
-		maze.displayMaze();
+		overlay.displayMaze();
 		System.out.println("");
 		System.out.println("The path has a length of " + (path.size()));
 	}
@@ -173,7 +354,7 @@ public class SingleRobotMazeworldProblem extends UUSearchProblem {
 	
 	// display the current map
 	public void display() {
-		maze.displayMaze();
+		overlay.displayMaze();
 	}
 
 	public static void main(String[] args) {
@@ -186,6 +367,11 @@ public class SingleRobotMazeworldProblem extends UUSearchProblem {
 		System.out.println("");
 		System.out.println("");
 		problem1.showPath(path);
+		problem1.printStats();
+		System.out.println("Finding path using bidirectional BFS");
+		List<UUSearchNode> pathBi = problem1.bidirectionalSearch();
+		System.out.println("The path has a length of " + pathBi.size());
+		problem1.printStats();
 		System.out.println("");
 		System.out.println("");
 		
@@ -206,5 +392,53 @@ public class SingleRobotMazeworldProblem extends UUSearchProblem {
 		System.out.println("");
 		System.out.println("");
 		problem2.showPath(path2);
+		problem2.printStats();
+		System.out.println("");
+		
+		// the same maze with landmark tables instead of the manhattan distance
+		SingleRobotMazeworldProblem problem6 = new SingleRobotMazeworldProblem(10, 10, 9, 9, 5, 4, barriers2);
+		problem6.setLandmarkHeuristic(new LandmarkHeuristic(problem6.maze, 4));
+		List<UUSearchNode> path6 = problem6.AStarSearch();
+		System.out.println("With landmarks the path has a length of " + path6.size());
+		problem6.printStats();
+		System.out.println("");
+		System.out.println("");
+		
+		SingleRobotMazeworldProblem problem4 = new SingleRobotMazeworldProblem(10, 10, 9, 9, 5, 4, barriers2);
+		System.out.println("Finding a path using the packed AStar...");
+		List<UUSearchNode> path4 = problem4.packedAStarSearch();
+		System.out.println("");
+		problem4.showPath(path4);
+		problem4.printStats();
+		System.out.println("");
+		System.out.println("");
+		
+		SingleRobotMazeworldProblem problem5 = new SingleRobotMazeworldProblem(10, 10, 9, 9, 5, 4, barriers2);
+		List<UUSearchNode> path5 = problem5.jumpPointSearch();
+		System.out.println("");
+		problem5.showPath(path5);
+		problem5.printStats();
+		System.out.println("");
+		System.out.println("");
+		
+		// A* in the background on a big maze with a 500ms deadline, reporting its 
+		// progress every 10000 expansions
+		MazeGenerator generator = new MazeGenerator(400, 400, 0.2, 1);
+		int[][] cells = generator.freeCells(2);
+		SingleRobotMazeworldProblem problem7 = new SingleRobotMazeworldProblem(generator.getMaze(), 
+				cells[1][0], cells[1][1], cells[0][0], cells[0][1]);
+		SearchControl control = new SearchControl().setTimeout(500, TimeUnit.MILLISECONDS).setProgressInterval(10000);
+		control.setListener(new SearchListener() {
+			public void progress(long expansions, int bestPriority) {
+				System.out.println(expansions + " expansions, best f " + bestPriority);
+			}
+		});
+		SearchHandle handle = problem7.startAStarSearch(control);
+		try {
+			int[] path7 = handle.await();
+			System.out.println(handle.getStatus() + (path7 == null ? "" : ", " + (path7.length / 2) + " cells"));
+		} catch (InterruptedException e) {
+			handle.cancel();
+		}
 	}	
 }
\ No newline at end of file
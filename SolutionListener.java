@@ -0,0 +1,12 @@
+// This receives the solutions of an anytime search as it improves them. Each
+// call has a better path or a tighter bound than the last one. The path is forward ordered as
+// {x0, y0, x1, y1, ...} (for several robots, every robot's position per step,
+// like SearchHandle's paths), and bound says how far from optimal it can be at
+// most: its cost is no more than bound times the optimal cost.
+
+package mazeworld;
+
+public interface SolutionListener {
+
+	public void solutionFound(int[] path, int cost, double bound);
+}
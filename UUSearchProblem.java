@@ -1,11 +1,18 @@
 package mazeworld;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.PriorityQueue;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.Executor;
 
 import java.util.Comparator;
 
@@ -16,6 +23,7 @@ public abstract class UUSearchProblem {
 	protected int nodesExplored;
 	protected int maxMemory;
 	protected UUSearchNode startNode;
+	protected SearchStats lastStats;
 	
 	protected interface UUSearchNode {
 		public ArrayList<UUSearchNode> getSuccessors();
@@ -23,82 +31,1129 @@ public abstract class UUSearchProblem {
 		public boolean goalTest();
 		public boolean individualGoalTest();
 		public int getDepth();
+		// getDepth split into its two parts: the cost of the moves from the 
+		// start (g) and the estimate of the cost still to go (h)
+		public int getPathCost();
+		public int getHeuristic();
 		public int getx();
 		public int gety();
 	}
 	
+	// receives the successors of a packed state one at a time: the successor,
+	// the cost of the move to it and its heuristic
+	protected interface SuccessorSink {
+		public void accept(long state, int cost, int heuristic);
+	}
+	
+	// a problem whose states fit in a single long can expose them through this
+	// interface. The packed searches then keep their bookkeeping in primitive
+	// tables keyed by the packed state and only create UUSearchNodes for the path
+	protected interface PackedStateSpace {
+		public long startState();
+		public boolean goalTest(long state);
+		public int heuristic(long state);
+		// passes every legal successor of state to the sink. Illegal moves are 
+		// dropped before anything is created. heuristic is the state's own 
+		// heuristic, so successors can update it instead of recomputing it
+		public void forEachSuccessor(long state, int heuristic, SuccessorSink sink);
+		public UUSearchNode toNode(long state, int depth);
+		// identifies the problem: the maze's barriers, the start and the goal.
+		// Searches that keep states on disk store it to tell their files apart
+		public long checksum();
+	}
+	
+	// receives the successors of a wide packed state. state holds the successor
+	// in its first words longs and is reused for the next one, so the sink
+	// copies what it keeps
+	protected interface WideSuccessorSink {
+		public void accept(long[] state, int cost, int heuristic);
+	}
+	
+	// PackedStateSpace for problems whose states need more than one long. A 
+	// state is a fixed number of longs, words(), passed around in the first
+	// words() entries of a long array
+	protected interface WideStateSpace {
+		public int words();
+		// writes the start state into state
+		public void startState(long[] state);
+		public boolean goalTest(long[] state);
+		public int heuristic(long[] state);
+		// like PackedStateSpace.forEachSuccessor. state is not changed
+		public void forEachSuccessor(long[] state, int heuristic, WideSuccessorSink sink);
+		public UUSearchNode toNode(long[] state, int depth);
+		// see PackedStateSpace.checksum
+		public long checksum();
+		// a space for another thread: the same problem, but with scratch
+		// arrays of its own, since forEachSuccessor may build successors in them
+		public WideStateSpace copy();
+	}
+	
+	// a PackedStateSpace seen as a WideStateSpace of one word, for code that
+	// handles both encodings with the wide one. The view keeps a scratch
+	// successor, so every thread needs a view of its own
+	static WideStateSpace widen(PackedStateSpace space) {
+		return new OneWordStateSpace(space);
+	}
+	
+	private static class OneWordStateSpace implements WideStateSpace, SuccessorSink {
+		
+		private PackedStateSpace space;
+		private long[] successor = new long[1];
+		private WideSuccessorSink sink;      // the sink of the running forEachSuccessor
+		
+		public OneWordStateSpace(PackedStateSpace s) {
+			space = s;
+		}
+		
+		public int words() {
+			return 1;
+		}
+		
+		public void startState(long[] state) {
+			state[0] = space.startState();
+		}
+		
+		public boolean goalTest(long[] state) {
+			return space.goalTest(state[0]);
+		}
+		
+		public int heuristic(long[] state) {
+			return space.heuristic(state[0]);
+		}
+		
+		public void forEachSuccessor(long[] state, int heuristic, WideSuccessorSink s) {
+			WideSuccessorSink outer = sink;
+			sink = s;
+			try {
+				space.forEachSuccessor(state[0], heuristic, this);
+			} finally {
+				sink = outer;
+			}
+		}
+		
+		public void accept(long state, int cost, int heuristic) {
+			successor[0] = state;
+			sink.accept(successor, cost, heuristic);
+		}
+		
+		public UUSearchNode toNode(long[] state, int depth) {
+			return space.toNode(state[0], depth);
+		}
+		
+		public long checksum() {
+			return space.checksum();
+		}
+		
+		public WideStateSpace copy() {
+			return new OneWordStateSpace(space);
+		}
+	}
+	
+	// problems that support packed states override this. The default is null,
+	// meaning only the node based searches are available. With a packed (or
+	// wide) state space breadthFirstSearch and AStarSearch run the packed 
+	// loops, which allocate nothing per expansion. The packed space must have
+	// the same moves as the nodes, so every search solves the same problem
+	protected PackedStateSpace getPackedStateSpace() {
+		return null;
+	}
+	
+	// problems whose states may not fit in a long override this. The packed
+	// searches use it when getPackedStateSpace is null. The default is null
+	protected WideStateSpace getWideStateSpace() {
+		return null;
+	}
+	
+	// problems with a single goal state whose moves can all be undone (so the 
+	// successors of a node are also its predecessors) return that goal state
+	// here, which makes bidirectionalSearch available. The default is null
+	protected UUSearchNode getGoalNode() {
+		return null;
+	}
+	
 	public List<UUSearchNode> breadthFirstSearch() {
-		resetStats();
-		ArrayList<UUSearchNode> returnList;
+		SearchStats stats = beginStats("bfs");
+		PackedStateSpace space = getPackedStateSpace();
+		if (space != null) {
+			return finishStats(stats, new PackedSearch(space, stats).breadthFirst());
+		}
+		WideStateSpace wide = getWideStateSpace();
+		if (wide != null) {
+			return finishStats(stats, new WidePackedSearch(wide, stats).breadthFirst());
+		}
 		HashMap<UUSearchNode, UUSearchNode> visited = new HashMap<UUSearchNode, UUSearchNode>();
+		UUSearchNode goal = breadthFirst(new SearchControl(), stats, visited);
+		return finishStats(stats, goal == null ? null : backchain(goal, visited));
+	}
+	
+	// the breadth first search loop. Fills visited with the parent of every 
+	// reached node and returns the goal node, or null if there is no path or
+	// the control stopped the search
+	private UUSearchNode breadthFirst(SearchControl control, SearchStats stats, 
+			HashMap<UUSearchNode, UUSearchNode> visited) {
 		LinkedList<UUSearchNode> frontier = new LinkedList<UUSearchNode>();
 		
 		frontier.add(startNode);
 		visited.put(startNode, null);
 		
 		while (frontier.size() > 0) {
+			stats.frontier(frontier.size());
 			UUSearchNode current = frontier.removeFirst();
 			
 			if (current.goalTest()) {
-				returnList = backchain(current, visited);
-				return returnList;	
+				stats.visited(visited.size());
+				return current;
+			}
+			if (!control.expand(stats.expansions, current.getDepth())) {
+				break;
 			}
 			
+			stats.expansions++;
 			ArrayList<UUSearchNode> successors = current.getSuccessors();
+			stats.generated += successors.size();
 			for (int i = 0; i < successors.size(); i++) {
 				UUSearchNode successor = successors.get(i);
 				if (!visited.containsKey(successor)) {
 					frontier.add(successor);
 					visited.put(successor, current);
+				} else {
+					stats.duplicates++;
 				}
 			}
 		}
+		stats.visited(visited.size());
 		return null;
 	}
 	
 	public List<UUSearchNode> AStarSearch() {
 		System.out.println("\nFinding a path using AStar...");
-		resetStats();
-		ArrayList<UUSearchNode> returnList;
-		HashSet<UUSearchNode> visited = new HashSet<UUSearchNode>();
+		SearchStats stats = beginStats("astar");
+		PackedStateSpace space = getPackedStateSpace();
+		WideStateSpace wide = getWideStateSpace();
+		if (space != null || wide != null) {
+			ArrayList<UUSearchNode> path = space != null ? new PackedSearch(space, stats).aStar()
+					: new WidePackedSearch(wide, stats).aStar();
+			if (path != null) {
+				System.out.println("Path Found!");
+			}
+			return finishStats(stats, path);
+		}
 		HashMap<UUSearchNode, UUSearchNode> backtracker = new HashMap<UUSearchNode, UUSearchNode>();
-		HashMap<UUSearchNode, Integer> distanceMap = new HashMap<UUSearchNode, Integer>();
+		UUSearchNode goal = aStar(new SearchControl(), stats, backtracker);
+		if (goal == null) {
+			return finishStats(stats, null);
+		}
+		System.out.println("Path Found!");
+		return finishStats(stats, backchain(goal, backtracker));
+	}
+	
+	// the A* loop. Fills backtracker with the parent of every reached node and 
+	// returns the goal node, or null if there is no path or the control 
+	// stopped the search
+	private UUSearchNode aStar(SearchControl control, SearchStats stats, 
+			HashMap<UUSearchNode, UUSearchNode> backtracker) {
+		HashSet<UUSearchNode> visited = new HashSet<UUSearchNode>();
 		Comparator<UUSearchNode> comparator = new AStarComparator();
-		PriorityQueue<UUSearchNode> frontier = new PriorityQueue<UUSearchNode>(comparator);	
+		
+		// the frontier is indexed, so membership is O(1) and a node that is reached 
+		// again at a lower cost has its priority lowered in place instead of being
+		// queued a second time
+		IndexedPriorityQueue<UUSearchNode> frontier = new IndexedPriorityQueue<UUSearchNode>(comparator);	
 		
 		frontier.add(startNode);
 		
 		while (frontier.size() > 0) {
+			stats.frontier(frontier.size());
 			UUSearchNode current = frontier.poll();
 			if (current.goalTest()) {
-				System.out.println("Path Found!");
-				returnList = backchain(current, backtracker);
-				return returnList;	
+				stats.visited(backtracker.size() + 1);
+				return current;
+			}
+			if (!control.expand(stats.expansions, current.getDepth())) {
+				break;
 			}
 			
+			stats.expansions++;
 			visited.add(current);
 			ArrayList<UUSearchNode> successors = current.getSuccessorsWithHeuristic();
 			if (successors != null) {
+				stats.generated += successors.size();
 				for (int i = 0; i < successors.size(); i++) {
 					UUSearchNode successor = successors.get(i);
-					if (!visited.contains(successor) && !frontier.contains(successor)) {
+					if (visited.contains(successor)) {
+						stats.duplicates++;
+						continue;
+					}
+					UUSearchNode queued = frontier.get(successor);
+					if (queued == null) {
 						frontier.add(successor);
 						backtracker.put(successor, current);
-						distanceMap.put(successor, successor.getDepth());
-					} else if (frontier.contains(successor)) {
-						if (distanceMap.get(successor) != null && 
-								successor.getDepth() < distanceMap.get(successor)) {
-							frontier.add(successor);
+					} else {
+						stats.duplicates++;
+						if (successor.getDepth() < queued.getDepth()) {
+							frontier.update(successor);
 							backtracker.put(successor, current);
-							distanceMap.put(successor, successor.getDepth());
 						}
 					}
 				}
 			}
 		}
-		return null;	
+		stats.visited(backtracker.size() + 1);
+		return null;
+	}
+	
+	// how much the weight of the anytime search drops after each round
+	private static final double ANYTIME_WEIGHT_STEP = 0.5;
+	
+	// anytime repairing A* (ARA*). The first round is weighted A*: the frontier
+	// is ordered by g + weight * h, which finds a path at most weight times the
+	// optimal cost after far fewer expansions. Every following round lowers 
+	// the weight and carries on with the same search tree, so only the nodes
+	// whose cost improved since they were expanded are expanded again. After 
+	// each round that finds a better path or tightens the bound (the path's 
+	// cost over the lowest g + h still open) both go to the listener, which may
+	// be null. The bound only holds if nodes that are equal have the same 
+	// successors, i.e. equals covers the whole state. It stops when the path is
+	// known to be optimal or the control stops it, and returns the best path
+	// found, goal first, or null if it found none
+	public List<UUSearchNode> anytimeSearch(double weight, SearchControl control, SolutionListener listener) {
+		SearchStats stats = beginStats("anytime-astar");
+		HashMap<UUSearchNode, UUSearchNode> parents = new HashMap<UUSearchNode, UUSearchNode>();
+		UUSearchNode goal = anytimeAStar(weight, control, stats, parents, listener);
+		return finishStats(stats, goal == null ? null : backchain(goal, parents));
+	}
+	
+	private UUSearchNode anytimeAStar(double weight, SearchControl control, SearchStats stats, 
+			HashMap<UUSearchNode, UUSearchNode> parents, SolutionListener listener) {
+		// the comparator reads the weight, so the frontier is rebuilt whenever it changes
+		final double[] inflation = { Math.max(1.0, weight) };
+		Comparator<UUSearchNode> comparator = new Comparator<UUSearchNode>() {
+			public int compare(UUSearchNode a, UUSearchNode b) {
+				int order = Double.compare(a.getPathCost() + inflation[0] * a.getHeuristic(), 
+						b.getPathCost() + inflation[0] * b.getHeuristic());
+				return order != 0 ? order : a.getHeuristic() - b.getHeuristic();
+			}
+		};
+		
+		// every reached state with the node that reaches it at the lowest path cost
+		HashMap<UUSearchNode, UUSearchNode> best = new HashMap<UUSearchNode, UUSearchNode>();
+		HashSet<UUSearchNode> closed = new HashSet<UUSearchNode>();
+		// states that got cheaper after they were expanded in this round
+		HashSet<UUSearchNode> inconsistent = new HashSet<UUSearchNode>();
+		IndexedPriorityQueue<UUSearchNode> frontier = new IndexedPriorityQueue<UUSearchNode>(comparator);
+		
+		best.put(startNode, startNode);
+		parents.put(startNode, null);
+		UUSearchNode incumbent = startNode.goalTest() ? startNode : null;
+		UUSearchNode published = null;
+		double publishedBound = Double.MAX_VALUE;
+		if (incumbent == null) {
+			frontier.add(startNode);
+		}
+		
+		while (true) {
+			// a round ends when no open node can lead to a cheaper path at this weight
+			while (!frontier.isEmpty() && (incumbent == null || frontier.peek().getPathCost() 
+					+ inflation[0] * frontier.peek().getHeuristic() < incumbent.getPathCost())) {
+				stats.frontier(frontier.size());
+				UUSearchNode current = frontier.poll();
+				if (!control.expand(stats.expansions, current.getDepth())) {
+					stats.visited(best.size());
+					return incumbent;
+				}
+				stats.expansions++;
+				closed.add(current);
+				ArrayList<UUSearchNode> successors = current.getSuccessorsWithHeuristic();
+				if (successors == null) {
+					continue;
+				}
+				stats.generated += successors.size();
+				for (int i = 0; i < successors.size(); i++) {
+					UUSearchNode successor = successors.get(i);
+					UUSearchNode known = best.get(successor);
+					if (known != null) {
+						stats.duplicates++;
+						if (successor.getPathCost() >= known.getPathCost()) {
+							continue;
+						}
+					}
+					best.put(successor, successor);
+					parents.put(successor, current);
+					if (successor.goalTest()) {
+						if (incumbent == null || successor.getPathCost() < incumbent.getPathCost()) {
+							incumbent = successor;
+						}
+					} else if (closed.contains(successor)) {
+						inconsistent.add(successor);
+					} else if (!frontier.update(successor)) {
+						frontier.add(successor);
+					}
+				}
+			}
+			if (incumbent == null) {
+				stats.visited(best.size());
+				return null;
+			}
+			
+			// the open and inconsistent nodes carry on into the next round. The
+			// lowest g + h among them is a lower bound on the optimal cost
+			ArrayList<UUSearchNode> open = new ArrayList<UUSearchNode>();
+			while (!frontier.isEmpty()) {
+				open.add(frontier.poll());
+			}
+			for (UUSearchNode node : inconsistent) {
+				open.add(best.get(node));
+			}
+			int lowerBound = incumbent.getPathCost();
+			for (int i = 0; i < open.size(); i++) {
+				lowerBound = Math.min(lowerBound, open.get(i).getDepth());
+			}
+			double bound = lowerBound == 0 ? 1.0 : Math.min(inflation[0], (double) incumbent.getPathCost() / lowerBound);
+			if (incumbent != published || bound < publishedBound) {
+				published = incumbent;
+				publishedBound = bound;
+				if (listener != null) {
+					listener.solutionFound(coordinates(incumbent, parents), incumbent.getPathCost(), bound);
+				}
+			}
+			if (bound <= 1.0) {
+				stats.visited(best.size());
+				return incumbent;
+			}
+			
+			inflation[0] = Math.max(1.0, Math.min(inflation[0] - ANYTIME_WEIGHT_STEP, bound));
+			frontier = new IndexedPriorityQueue<UUSearchNode>(comparator);
+			for (int i = 0; i < open.size(); i++) {
+				frontier.add(open.get(i));
+			}
+			closed.clear();
+			inconsistent.clear();
+		}
 	}
 	
+	// starts A* on a background thread and returns at once. The control can 
+	// cancel it, give it a deadline or an expansion budget and listen to its 
+	// progress. Only one search may run on a problem at a time
+	public SearchHandle startAStarSearch(SearchControl control) {
+		return startSearch("astar", aStarLoop(), control, null);
+	}
+	
+	// the same, on a thread of the executor
+	public SearchHandle startAStarSearch(SearchControl control, Executor executor) {
+		return startSearch("astar", aStarLoop(), control, executor);
+	}
+	
+	// starts breadth first search on a background thread, like startAStarSearch
+	public SearchHandle startBreadthFirstSearch(SearchControl control) {
+		return startSearch("bfs", breadthFirstLoop(), control, null);
+	}
+	
+	public SearchHandle startBreadthFirstSearch(SearchControl control, Executor executor) {
+		return startSearch("bfs", breadthFirstLoop(), control, executor);
+	}
+	
+	// starts anytime A* (see anytimeSearch) on a background thread. When the 
+	// handle is done its path is the best one found
+	public SearchHandle startAnytimeSearch(final double weight, SearchControl control, final SolutionListener listener) {
+		return startSearch("anytime-astar", new SearchLoop() {
+			public UUSearchNode run(SearchControl c, SearchStats stats, HashMap<UUSearchNode, UUSearchNode> parents) {
+				return anytimeAStar(weight, c, stats, parents, listener);
+			}
+		}, control, null);
+	}
+	
+	// one of the search loops, as startSearch runs them
+	private interface SearchLoop {
+		public UUSearchNode run(SearchControl control, SearchStats stats, HashMap<UUSearchNode, UUSearchNode> parents);
+	}
+	
+	private SearchLoop aStarLoop() {
+		return new SearchLoop() {
+			public UUSearchNode run(SearchControl control, SearchStats stats, HashMap<UUSearchNode, UUSearchNode> parents) {
+				return aStar(control, stats, parents);
+			}
+		};
+	}
+	
+	private SearchLoop breadthFirstLoop() {
+		return new SearchLoop() {
+			public UUSearchNode run(SearchControl control, SearchStats stats, HashMap<UUSearchNode, UUSearchNode> parents) {
+				return breadthFirst(control, stats, parents);
+			}
+		};
+	}
+	
+	private SearchHandle startSearch(final String name, final SearchLoop loop, final SearchControl control, 
+			Executor executor) {
+		final SearchHandle handle = new SearchHandle(control);
+		Runnable search = new Runnable() {
+			public void run() {
+				try {
+					SearchStats stats = beginStats(name);
+					HashMap<UUSearchNode, UUSearchNode> parents = new HashMap<UUSearchNode, UUSearchNode>();
+					UUSearchNode goal = loop.run(control, stats, parents);
+					int[] path = (goal == null) ? null : coordinates(goal, parents);
+					stats.finish(path == null ? 0 : path.length / coordinatesPerStep(), path != null);
+					publishStats(stats);
+					
+					SearchHandle.Status status = SearchHandle.Status.FOUND;
+					if (path == null) {
+						status = control.getStopReason() != null ? control.getStopReason() : SearchHandle.Status.NOT_FOUND;
+					}
+					handle.complete(status, path, stats);
+				} catch (Throwable t) {
+					handle.fail(t);
+				}
+			}
+		};
+		if (executor == null) {
+			Thread thread = new Thread(search, getClass().getSimpleName() + " search");
+			thread.setDaemon(true);
+			thread.start();
+		} else {
+			executor.execute(search);
+		}
+		return handle;
+	}
+	
+	// the path to node as the coordinates of every step from the start, see
+	// putCoordinates. The length is counted first so the coordinates can be 
+	// written straight into place
+	private int[] coordinates(UUSearchNode node, HashMap<UUSearchNode, UUSearchNode> parents) {
+		int length = 0;
+		for (UUSearchNode n = node; n != null; n = parents.get(n)) {
+			length++;
+		}
+		int step = coordinatesPerStep();
+		int[] path = new int[length * step];
+		int i = path.length;
+		for (UUSearchNode n = node; n != null; n = parents.get(n)) {
+			i -= step;
+			putCoordinates(n, path, i);
+		}
+		return path;
+	}
+	
+	// ints per step of a coordinate path: x and y of the robot. Problems with
+	// several robots override this and putCoordinates
+	protected int coordinatesPerStep() {
+		return 2;
+	}
+	
+	// writes one step of a coordinate path, node's position, at path[offset]
+	protected void putCoordinates(UUSearchNode node, int[] path, int offset) {
+		path[offset] = node.getx();
+		path[offset + 1] = node.gety();
+	}
+	
+	
+	// breadth first search from the start and the goal at the same time. Each
+	// round expands one whole layer of the smaller side; once a layer touches the
+	// other side the shortest path through any of the meeting nodes is optimal.
+	// Both searches only reach about half the depth, so on open mazes far fewer 
+	// nodes are explored. The path is returned goal-to-start like backchain
+	public List<UUSearchNode> bidirectionalSearch() {
+		UUSearchNode goalNode = getGoalNode();
+		if (goalNode == null) {
+			throw new UnsupportedOperationException(getClass().getSimpleName() + " has no reversible goal state");
+		}
+		SearchStats stats = beginStats("bidirectional-bfs");
+		
+		HashMap<UUSearchNode, UUSearchNode> forwardParents = new HashMap<UUSearchNode, UUSearchNode>();
+		HashMap<UUSearchNode, UUSearchNode> backwardParents = new HashMap<UUSearchNode, UUSearchNode>();
+		HashMap<UUSearchNode, Integer> forwardDepths = new HashMap<UUSearchNode, Integer>();
+		HashMap<UUSearchNode, Integer> backwardDepths = new HashMap<UUSearchNode, Integer>();
+		ArrayList<UUSearchNode> forwardLayer = new ArrayList<UUSearchNode>();
+		ArrayList<UUSearchNode> backwardLayer = new ArrayList<UUSearchNode>();
+		
+		forwardParents.put(startNode, null);
+		forwardDepths.put(startNode, 0);
+		forwardLayer.add(startNode);
+		backwardParents.put(goalNode, null);
+		backwardDepths.put(goalNode, 0);
+		backwardLayer.add(goalNode);
+		
+		UUSearchNode meeting = forwardParents.containsKey(goalNode) ? startNode : null;
+		int forwardDepth = 0;
+		int backwardDepth = 0;
+		
+		while (meeting == null && !forwardLayer.isEmpty() && !backwardLayer.isEmpty()) {
+			stats.frontier(forwardLayer.size() + backwardLayer.size());
+			boolean forward = forwardLayer.size() <= backwardLayer.size();
+			HashMap<UUSearchNode, UUSearchNode> parents = forward ? forwardParents : backwardParents;
+			HashMap<UUSearchNode, Integer> depths = forward ? forwardDepths : backwardDepths;
+			HashMap<UUSearchNode, Integer> otherDepths = forward ? backwardDepths : forwardDepths;
+			int depth = (forward ? ++forwardDepth : ++backwardDepth);
+			
+			ArrayList<UUSearchNode> next = new ArrayList<UUSearchNode>();
+			int best = Integer.MAX_VALUE;
+			for (int i = 0; i < (forward ? forwardLayer : backwardLayer).size(); i++) {
+				UUSearchNode current = (forward ? forwardLayer : backwardLayer).get(i);
+				stats.expansions++;
+				ArrayList<UUSearchNode> successors = current.getSuccessors();
+				stats.generated += successors.size();
+				for (int j = 0; j < successors.size(); j++) {
+					UUSearchNode successor = successors.get(j);
+					if (parents.containsKey(successor)) {
+						stats.duplicates++;
+						continue;
+					}
+					parents.put(successor, current);
+					depths.put(successor, depth);
+					next.add(successor);
+					Integer otherDepth = otherDepths.get(successor);
+					if (otherDepth != null && depth + otherDepth < best) {
+						best = depth + otherDepth;
+						meeting = successor;
+					}
+				}
+			}
+			if (forward) {
+				forwardLayer = next;
+			} else {
+				backwardLayer = next;
+			}
+		}
+		stats.visited(forwardParents.size() + backwardParents.size());
+		if (meeting == null) {
+			return finishStats(stats, null);
+		}
+		
+		// goal ... meeting from the backward side, then meeting ... start
+		ArrayList<UUSearchNode> toGoal = backchain(meeting, backwardParents);
+		ArrayList<UUSearchNode> returnList = new ArrayList<UUSearchNode>(toGoal.size() + forwardDepths.get(meeting));
+		for (int i = toGoal.size() - 1; i > 0; i--) {
+			returnList.add(toGoal.get(i));
+		}
+		returnList.addAll(backchain(meeting, forwardParents));
+		return finishStats(stats, returnList);
+	}
+	
+	// A* over packed states, see PackedSearch. States that don't fit in a long
+	// are searched in their wide encoding, see WidePackedSearch
+	public List<UUSearchNode> packedAStarSearch() {
+		System.out.println("\nFinding a path using the packed AStar...");
+		List<UUSearchNode> path = packedAStar();
+		if (path != null) {
+			System.out.println("Path Found!");
+		}
+		return path;
+	}
+	
+	// packedAStarSearch without the progress messages, for searches that run
+	// it as one step of many
+	List<UUSearchNode> packedAStar() {
+		PackedStateSpace space = getPackedStateSpace();
+		WideStateSpace wide = getWideStateSpace();
+		if (space == null && wide == null) {
+			throw new UnsupportedOperationException(getClass().getSimpleName() + " has no packed state encoding");
+		}
+		SearchStats stats = beginStats("packed-astar");
+		if (space == null) {
+			return finishStats(stats, new WidePackedSearch(wide, stats).aStar());
+		}
+		return finishStats(stats, new PackedSearch(space, stats).aStar());
+	}
+	
+	// breadth first search over packed states that keeps its layers in files
+	// under directory instead of a visited table in memory, and picks up from
+	// the layers already there. See ExternalBreadthFirstSearch
+	public List<UUSearchNode> externalBreadthFirstSearch(File directory) throws IOException {
+		resetStats();
+		ExternalBreadthFirstSearch search = new ExternalBreadthFirstSearch(this, directory);
+		List<UUSearchNode> path = search.search();
+		publishStats(search.getLastSearchStats());
+		return path;
+	}
+
+	// A* over packed states on several threads, each owning a share of the
+	// states. The cost is the same as AStarSearch's. See HashDistributedAStar
+	public List<UUSearchNode> parallelAStarSearch(int threads) {
+		resetStats();
+		HashDistributedAStar search = new HashDistributedAStar(this, threads);
+		List<UUSearchNode> path = search.search();
+		publishStats(search.getLastSearchStats());
+		return path;
+	}
+
+	// the search loops over packed states. visited, backtracker and the path
+	// costs are kept in a LongIntHashMap from state to slot plus flat per-slot
+	// arrays, so the memory per reached state is a few words instead of several
+	// node and map entry objects. The state space hands successors to accept()
+	// one by one, so an expansion allocates nothing; only the path at the end
+	// is turned into nodes
+	private class PackedSearch implements SuccessorSink {
+		
+		private PackedStateSpace space;
+		private SearchStats stats;
+		private LongIntHashMap slotOf = new LongIntHashMap(1024);
+		private long[] states = new long[1024];
+		private int[] parents = new int[1024];
+		private int[] costs = new int[1024];
+		private int[] heuristics = new int[1024];
+		private int slotCount;
+		private IndexedIntHeap frontier;   // A* only, breadth first expands slots in order
+		private int current;               // slot being expanded
+		
+		public PackedSearch(PackedStateSpace s, SearchStats st) {
+			space = s;
+			stats = st;
+			long start = space.startState();
+			slotOf.put(start, 0);
+			states[0] = start;
+			parents[0] = -1;
+			costs[0] = 0;
+			heuristics[0] = space.heuristic(start);
+			slotCount = 1;
+		}
+		
+		// breadth first: slots are handed out in the order states are reached,
+		// so the slots themselves are the queue
+		public ArrayList<UUSearchNode> breadthFirst() {
+			for (current = 0; current < slotCount; current++) {
+				stats.frontier(slotCount - current);
+				if (space.goalTest(states[current])) {
+					stats.visited(slotCount);
+					return packedBackchain(current);
+				}
+				stats.expansions++;
+				space.forEachSuccessor(states[current], heuristics[current], this);
+			}
+			stats.visited(slotCount);
+			return null;
+		}
+		
+		public ArrayList<UUSearchNode> aStar() {
+			frontier = new IndexedIntHeap(1024);
+			frontier.add(0, packedKey(0, heuristics[0]));
+			while (!frontier.isEmpty()) {
+				stats.frontier(frontier.size());
+				current = frontier.poll();
+				if (space.goalTest(states[current])) {
+					stats.visited(slotCount);
+					return packedBackchain(current);
+				}
+				stats.expansions++;
+				space.forEachSuccessor(states[current], heuristics[current], this);
+			}
+			stats.visited(slotCount);
+			return null;
+		}
+		
+		// one successor of the current slot
+		public void accept(long successor, int cost, int heuristic) {
+			stats.generated++;
+			int newCost = costs[current] + cost;
+			int slot = slotOf.get(successor);
+			if (slot == -1) {
+				if (slotCount == states.length) {
+					states = Arrays.copyOf(states, slotCount * 2);
+					parents = Arrays.copyOf(parents, slotCount * 2);
+					costs = Arrays.copyOf(costs, slotCount * 2);
+					heuristics = Arrays.copyOf(heuristics, slotCount * 2);
+					if (frontier != null) {
+						frontier.ensureIdCapacity(slotCount * 2);
+					}
+				}
+				slot = slotCount++;
+				slotOf.put(successor, slot);
+				states[slot] = successor;
+				heuristics[slot] = heuristic;
+			} else {
+				stats.duplicates++;
+				// breadth first reaches every state first at its lowest cost
+				if (frontier == null || newCost >= costs[slot]) {
+					return;
+				}
+				if (!frontier.contains(slot)) {
+					stats.reopened++;
+				}
+			}
+			// new state, or a cheaper way to one we have seen (which reopens it)
+			parents[slot] = current;
+			costs[slot] = newCost;
+			if (frontier != null) {
+				frontier.addOrUpdate(slot, packedKey(newCost, heuristics[slot]));
+			}
+		}
+		
+		// builds the goal-to-start node list from the parent slots
+		private ArrayList<UUSearchNode> packedBackchain(int slot) {
+			ArrayList<UUSearchNode> returnList = new ArrayList<UUSearchNode>();
+			while (slot != -1) {
+				returnList.add(space.toNode(states[slot], costs[slot]));
+				slot = parents[slot];
+			}
+			return returnList;
+		}
+	}
+	
+	// PackedSearch over wide states. The states sit back to back in one long
+	// array, slot s in states[s * words .. (s + 1) * words), and are looked up
+	// in a LongArrayIntHashMap; everything else is the same as PackedSearch
+	private class WidePackedSearch implements WideSuccessorSink {
+		
+		private WideStateSpace space;
+		private SearchStats stats;
+		private int words;
+		private LongArrayIntHashMap slotOf;
+		private long[] states;
+		private int[] parents = new int[1024];
+		private int[] costs = new int[1024];
+		private int[] heuristics = new int[1024];
+		private int slotCount;
+		private IndexedIntHeap frontier;   // A* only, breadth first expands slots in order
+		private int current;               // slot being expanded
+		private long[] state;              // a copy of one slot's state
+		
+		public WidePackedSearch(WideStateSpace s, SearchStats st) {
+			space = s;
+			stats = st;
+			words = space.words();
+			slotOf = new LongArrayIntHashMap(words, 1024);
+			states = new long[1024 * words];
+			state = new long[words];
+			space.startState(state);
+			slotOf.put(state, 0);
+			System.arraycopy(state, 0, states, 0, words);
+			parents[0] = -1;
+			costs[0] = 0;
+			heuristics[0] = space.heuristic(state);
+			slotCount = 1;
+		}
+		
+		public ArrayList<UUSearchNode> breadthFirst() {
+			for (current = 0; current < slotCount; current++) {
+				stats.frontier(slotCount - current);
+				if (space.goalTest(load(current))) {
+					stats.visited(slotCount);
+					return packedBackchain(current);
+				}
+				stats.expansions++;
+				space.forEachSuccessor(state, heuristics[current], this);
+			}
+			stats.visited(slotCount);
+			return null;
+		}
+		
+		public ArrayList<UUSearchNode> aStar() {
+			frontier = new IndexedIntHeap(1024);
+			frontier.add(0, packedKey(0, heuristics[0]));
+			while (!frontier.isEmpty()) {
+				stats.frontier(frontier.size());
+				current = frontier.poll();
+				if (space.goalTest(load(current))) {
+					stats.visited(slotCount);
+					return packedBackchain(current);
+				}
+				stats.expansions++;
+				space.forEachSuccessor(state, heuristics[current], this);
+			}
+			stats.visited(slotCount);
+			return null;
+		}
+		
+		// copies a slot's state into state, which the state space reads while
+		// new slots are added
+		private long[] load(int slot) {
+			System.arraycopy(states, slot * words, state, 0, words);
+			return state;
+		}
+		
+		public void accept(long[] successor, int cost, int heuristic) {
+			stats.generated++;
+			int newCost = costs[current] + cost;
+			int slot = slotOf.get(successor);
+			if (slot == -1) {
+				if (slotCount == parents.length) {
+					states = Arrays.copyOf(states, slotCount * 2 * words);
+					parents = Arrays.copyOf(parents, slotCount * 2);
+					costs = Arrays.copyOf(costs, slotCount * 2);
+					heuristics = Arrays.copyOf(heuristics, slotCount * 2);
+					if (frontier != null) {
+						frontier.ensureIdCapacity(slotCount * 2);
+					}
+				}
+				slot = slotCount++;
+				slotOf.put(successor, slot);
+				System.arraycopy(successor, 0, states, slot * words, words);
+				heuristics[slot] = heuristic;
+			} else {
+				stats.duplicates++;
+				if (frontier == null || newCost >= costs[slot]) {
+					return;
+				}
+				if (!frontier.contains(slot)) {
+					stats.reopened++;
+				}
+			}
+			parents[slot] = current;
+			costs[slot] = newCost;
+			if (frontier != null) {
+				frontier.addOrUpdate(slot, packedKey(newCost, heuristics[slot]));
+			}
+		}
+		
+		private ArrayList<UUSearchNode> packedBackchain(int slot) {
+			ArrayList<UUSearchNode> returnList = new ArrayList<UUSearchNode>();
+			while (slot != -1) {
+				returnList.add(space.toNode(load(slot), costs[slot]));
+				slot = parents[slot];
+			}
+			return returnList;
+		}
+	}
+	
+	// frontier priority: f = cost + heuristic in the high half, with ties going
+	// to the lower heuristic (the state closer to the goal)
+	private static long packedKey(int cost, int heuristic) {
+		return ((long) (cost + heuristic) << 32) | heuristic;
+	}
+	
+	// Iterative deepening A* (IDA*). Each round is a depth first search that 
+	// cuts off every node whose g + h is over the threshold; the next round's 
+	// threshold is the lowest g + h that was cut off. Only the current path is
+	// kept, plus a transposition table of the cheapest g each node was reached
+	// with this round, so a node reached again at no lower cost is not searched
+	// twice. The table holds at most tableCapacity nodes and forgets the least
+	// recently used ones, so memory stays bounded however hard the problem is;
+	// a small table only costs time. Paths are optimal and returned goal first
+	public List<UUSearchNode> iterativeDeepeningAStarSearch(final int tableCapacity) {
+		SearchStats stats = beginStats("ida-star");
+		LinkedHashMap<UUSearchNode, Integer> table = new LinkedHashMap<UUSearchNode, Integer>(16, 0.75f, true) {
+			protected boolean removeEldestEntry(Map.Entry<UUSearchNode, Integer> eldest) {
+				return size() > tableCapacity;
+			}
+		};
+		HashSet<UUSearchNode> onPath = new HashSet<UUSearchNode>();
+		ArrayList<UUSearchNode> path = new ArrayList<UUSearchNode>();
+		ArrayList<Iterator<UUSearchNode>> successors = new ArrayList<Iterator<UUSearchNode>>();
+		
+		int threshold = startNode.getPathCost() + startNode.getHeuristic();
+		while (true) {
+			int nextThreshold = Integer.MAX_VALUE;
+			table.clear();
+			path.add(startNode);
+			successors.add(null);
+			onPath.add(startNode);
+			
+			while (!path.isEmpty()) {
+				int top = path.size() - 1;
+				UUSearchNode current = path.get(top);
+				Iterator<UUSearchNode> next = successors.get(top);
+				if (next == null) {
+					// first visit: cut off, goal, or expand
+					int f = current.getPathCost() + current.getHeuristic();
+					Integer seen = table.get(current);
+					if (f > threshold || (seen != null && seen <= current.getPathCost())) {
+						if (f > threshold) {
+							nextThreshold = Math.min(nextThreshold, f);
+						} else {
+							stats.duplicates++;
+						}
+						onPath.remove(path.remove(top));
+						successors.remove(top);
+						continue;
+					}
+					if (current.goalTest()) {
+						System.out.println("Path Found!");
+						ArrayList<UUSearchNode> returnList = new ArrayList<UUSearchNode>(path.size());
+						for (int i = top; i >= 0; i--) {
+							returnList.add(path.get(i));
+						}
+						path.clear();
+						stats.visited(table.size() + 1);
+						return finishStats(stats, returnList);
+					}
+					table.put(current, current.getPathCost());
+					stats.expansions++;
+					stats.visited(table.size() + path.size());
+					ArrayList<UUSearchNode> children = current.getSuccessorsWithHeuristic();
+					if (children == null) {
+						children = new ArrayList<UUSearchNode>();
+					}
+					stats.generated += children.size();
+					next = children.iterator();
+					successors.set(top, next);
+				}
+				
+				if (next.hasNext()) {
+					UUSearchNode child = next.next();
+					// a node already on the path would only lead round a cycle
+					if (onPath.add(child)) {
+						path.add(child);
+						successors.add(null);
+						stats.frontier(path.size());
+					}
+				} else {
+					onPath.remove(path.remove(top));
+					successors.remove(top);
+				}
+			}
+			
+			if (nextThreshold == Integer.MAX_VALUE) {
+				return finishStats(stats, null);
+			}
+			threshold = nextThreshold;
+		}
+	}
+	
+	// Simplified memory-bounded A* (SMA*). It runs like A* on a search tree 
+	// of at most maxNodes nodes. When an expansion goes over the budget, the 
+	// worst leaves (highest f, shallowest first) are dropped, and their parent
+	// remembers the lowest f among its forgotten children. A parent with 
+	// forgotten children goes back on the frontier at that f and regenerates 
+	// them if the search comes back that way. Nodes on the tree's current best 
+	// branch are never dropped, so the tree can go over the budget by one 
+	// expansion's worth of children. Paths longer than maxNodes can't be held
+	// and aren't found. Paths found are optimal and returned goal first
+	public List<UUSearchNode> smaStarSearch(int maxNodes) {
+		SearchStats stats = beginStats("sma-star");
+		TreeSet<BoundedNode> frontier = new TreeSet<BoundedNode>();
+		HashMap<UUSearchNode, BoundedNode> inTree = new HashMap<UUSearchNode, BoundedNode>();
+		BoundedNode root = new BoundedNode(startNode, null, 0);
+		root.priority = startNode.getPathCost() + startNode.getHeuristic();
+		frontier.add(root);
+		inTree.put(startNode, root);
+		int used = 1;
+		int created = 1;
+		
+		while (!frontier.isEmpty()) {
+			stats.frontier(frontier.size());
+			BoundedNode best = frontier.first();
+			if (best.priority == Integer.MAX_VALUE) {
+				break;
+			}
+			if (best.children.isEmpty() && best.node.goalTest()) {
+				System.out.println("Path Found!");
+				ArrayList<UUSearchNode> returnList = new ArrayList<UUSearchNode>();
+				for (BoundedNode n = best; n != null; n = n.parent) {
+					returnList.add(n.node);
+				}
+				return finishStats(stats, returnList);
+			}
+			
+			// expand best. A successor that is already in the tree at no higher 
+			// cost is skipped, that node stands for it (and when it is dropped 
+			// its f is remembered up the tree). So after a prune only the 
+			// forgotten children come back
+			frontier.remove(best);
+			stats.expansions++;
+			ArrayList<UUSearchNode> successors = best.node.getSuccessorsWithHeuristic();
+			if (successors != null) {
+				stats.generated += successors.size();
+				for (int i = 0; i < successors.size(); i++) {
+					UUSearchNode successor = successors.get(i);
+					BoundedNode existing = inTree.get(successor);
+					if (existing != null) {
+						stats.duplicates++;
+						if (existing.node.getPathCost() <= successor.getPathCost()) {
+							continue;
+						}
+						// the new way is cheaper; the old node is left to be 
+						// pruned in time
+					}
+					BoundedNode child = new BoundedNode(successor, best, created++);
+					if (!successor.goalTest() && child.depth >= maxNodes - 1) {
+						// no room below it for the rest of a path
+						child.priority = Integer.MAX_VALUE;
+					} else {
+						// a child's f can't be lower than its parent's
+						child.priority = Math.max(best.priority, 
+								successor.getPathCost() + successor.getHeuristic());
+					}
+					best.children.add(child);
+					frontier.add(child);
+					inTree.put(successor, child);
+					used++;
+				}
+			}
+			best.forgotten = Integer.MAX_VALUE;
+			if (best.children.isEmpty()) {
+				// a dead end, drop it for good
+				best.priority = Integer.MAX_VALUE;
+				used -= forget(best, frontier, inTree);
+			}
+			stats.visited(used);
+			
+			// over budget: drop the worst leaves, never the current best
+			while (used > maxNodes) {
+				BoundedNode worst = null;
+				Iterator<BoundedNode> candidates = frontier.descendingIterator();
+				while (candidates.hasNext()) {
+					BoundedNode candidate = candidates.next();
+					if (candidate == frontier.first()) {
+						break;
+					}
+					if (candidate.children.isEmpty() && candidate.parent != null) {
+						worst = candidate;
+						break;
+					}
+				}
+				if (worst == null) {
+					break;
+				}
+				used -= forget(worst, frontier, inTree);
+			}
+		}
+		stats.visited(used);
+		return finishStats(stats, null);
+	}
+	
+	// removes a leaf from the tree and the frontier and returns how many nodes
+	// went. Its parent remembers the leaf's f and goes (back) on the frontier,
+	// keyed by its lowest forgotten f. A parent left with nothing but dead ends
+	// is a dead end itself and goes too
+	private int forget(BoundedNode leaf, TreeSet<BoundedNode> frontier, 
+			HashMap<UUSearchNode, BoundedNode> inTree) {
+		frontier.remove(leaf);
+		if (inTree.get(leaf.node) == leaf) {
+			inTree.remove(leaf.node);
+		}
+		BoundedNode parent = leaf.parent;
+		if (parent == null) {
+			return 1;
+		}
+		frontier.remove(parent);
+		parent.children.remove(leaf);
+		parent.forgotten = Math.min(parent.forgotten, leaf.priority);
+		parent.priority = parent.forgotten;
+		if (parent.forgotten != Integer.MAX_VALUE) {
+			frontier.add(parent);
+		} else if (parent.children.isEmpty()) {
+			return 1 + forget(parent, frontier, inTree);
+		}
+		return 1;
+	}
+	
+	// a node of the smaStarSearch tree. priority is its f while it is a leaf, 
+	// and the lowest f of its forgotten children once it has some
+	private static class BoundedNode implements Comparable<BoundedNode> {
+		
+		UUSearchNode node;
+		BoundedNode parent;
+		ArrayList<BoundedNode> children = new ArrayList<BoundedNode>();
+		int depth, priority, id;
+		int forgotten = Integer.MAX_VALUE;
+		
+		BoundedNode(UUSearchNode n, BoundedNode p, int i) {
+			node = n;
+			parent = p;
+			depth = (p == null) ? 0 : p.depth + 1;
+			id = i;
+		}
+		
+		// lowest f first, deeper first on ties, then oldest first
+		public int compareTo(BoundedNode other) {
+			if (priority != other.priority) {
+				return priority < other.priority ? -1 : 1;
+			}
+			if (depth != other.depth) {
+				return other.depth - depth;
+			}
+			return id - other.id;
+		}
+	}
 	
 	// backchain should only be used by bfs, not the recursive dfs
 	private ArrayList<UUSearchNode> backchain(UUSearchNode node,
@@ -120,12 +1175,41 @@ public abstract class UUSearchProblem {
 	protected void resetStats() {
 		nodesExplored = 0;
 		maxMemory = 0;
+		lastStats = null;
 	}
 	
+	// starts a new stats record for the named search
+	protected SearchStats beginStats(String search) {
+		resetStats();
+		return new SearchStats(getClass().getSimpleName(), search);
+	}
+	
+	// closes the stats record, publishes it as the last search's stats and 
+	// passes the path through so searches can return finishStats(stats, path)
+	protected <T extends List<UUSearchNode>> T finishStats(SearchStats stats, T path) {
+		stats.finish(path == null ? 0 : path.size(), path != null);
+		publishStats(stats);
+		return path;
+	}
+	
+	// make a finished record the last search's stats
+	protected void publishStats(SearchStats stats) {
+		lastStats = stats;
+		nodesExplored = (int) Math.min(Integer.MAX_VALUE, stats.getExpansions());
+		updateMemory((int) Math.min(Integer.MAX_VALUE, stats.getPeakVisited()));
+	}
+	
+	// the stats of the most recent search, or null if none has finished
+	public SearchStats getLastSearchStats() {
+		return lastStats;
+	}
 	
 	protected void printStats() {
 		System.out.println("Nodes explored during last search:  " + nodesExplored);
 		System.out.println("Maximum memory usage during last search " + maxMemory);
+		if (lastStats != null) {
+			System.out.println(lastStats.toJson());
+		}
 	}
 	
 	
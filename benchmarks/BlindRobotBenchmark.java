@@ -0,0 +1,66 @@
+// JMH benchmark of the blind robot searches on a generated maze, over belief
+// states from the whole maze down to the goal cell.
+
+package mazeworld;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class BlindRobotBenchmark {
+
+	@Param({ "6" })
+	public int size;
+
+	@Param({ "0.2" })
+	public double density;
+
+	@Param({ "1" })
+	public long seed;
+
+	private BlindMazeProblem problem;
+
+	@Setup
+	public void setUp() {
+		// the searches print progress messages, keep them out of the results
+		System.setOut(new PrintStream(new OutputStream() {
+			public void write(int b) { }
+			public void write(byte[] b, int off, int len) { }
+		}));
+		MazeGenerator generator = new MazeGenerator(size, size, density, seed);
+		int[][] cells = generator.freeCells(2);
+		if (cells == null) {
+			throw new IllegalStateException("size=" + size + " density=" + density + " seed=" + seed + " has no open region");
+		}
+		problem = new BlindMazeProblem(generator.getMaze(), cells[0][0], cells[0][1], cells[1][0], cells[1][1]);
+	}
+
+	@Benchmark
+	public List<UUSearchProblem.UUSearchNode> bfs() {
+		return problem.breadthFirstSearch();
+	}
+
+	@Benchmark
+	public List<UUSearchProblem.UUSearchNode> astar() {
+		return problem.AStarSearch();
+	}
+}
@@ -0,0 +1,81 @@
+// JMH benchmark of the multi robot searches on a generated maze. The first
+// robots cells the generator hands out are the starts, the next ones the
+// goals.
+
+package mazeworld;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class MultiRobotBenchmark {
+
+	@Param({ "10" })
+	public int size;
+
+	@Param({ "0.2" })
+	public double density;
+
+	@Param({ "2", "3" })
+	public int robots;
+
+	@Param({ "1" })
+	public long seed;
+
+	private MultiRobotMazeworldProblem problem;
+
+	@Setup
+	public void setUp() {
+		// the searches print progress messages, keep them out of the results
+		System.setOut(new PrintStream(new OutputStream() {
+			public void write(int b) { }
+			public void write(byte[] b, int off, int len) { }
+		}));
+		MazeGenerator generator = new MazeGenerator(size, size, density, seed);
+		int[][] cells = generator.freeCells(robots * 2);
+		if (cells == null) {
+			throw new IllegalStateException("size=" + size + " density=" + density + " seed=" + seed + " has no open region");
+		}
+		int[][] starts = new int[robots][];
+		int[][] goals = new int[robots][];
+		for (int i = 0; i < robots; i++) {
+			starts[i] = cells[i];
+			goals[i] = cells[robots + i];
+		}
+		problem = new MultiRobotMazeworldProblem(generator.getMaze(), goals, starts);
+	}
+
+	@Benchmark
+	public List<UUSearchProblem.UUSearchNode> bfs() {
+		return problem.breadthFirstSearch();
+	}
+
+	@Benchmark
+	public List<UUSearchProblem.UUSearchNode> astar() {
+		return problem.AStarSearch();
+	}
+
+	@Benchmark
+	public List<UUSearchProblem.UUSearchNode> independenceDetection() {
+		return problem.independenceDetectionSearch();
+	}
+}
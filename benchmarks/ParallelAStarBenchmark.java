@@ -0,0 +1,81 @@
+// JMH benchmark of hash distributed A* over a range of thread counts, next
+// to the single threaded packed A* it should match. Six robots on a 40x40
+// map (-p size=40 -p robots=6 -p seed=1) take two longs per state, so that
+// case runs the wide encoding.
+
+package mazeworld;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ParallelAStarBenchmark {
+
+	@Param({ "24" })
+	public int size;
+
+	@Param({ "0.2" })
+	public double density;
+
+	@Param({ "3" })
+	public int robots;
+
+	@Param({ "5" })
+	public long seed;
+
+	@Param({ "1", "2", "4", "8" })
+	public int threads;
+
+	private MultiRobotMazeworldProblem problem;
+
+	@Setup
+	public void setUp() {
+		// the searches print progress messages, keep them out of the results
+		System.setOut(new PrintStream(new OutputStream() {
+			public void write(int b) { }
+			public void write(byte[] b, int off, int len) { }
+		}));
+		MazeGenerator generator = new MazeGenerator(size, size, density, seed);
+		int[][] cells = generator.freeCells(robots * 2);
+		if (cells == null) {
+			throw new IllegalStateException("size=" + size + " density=" + density + " seed=" + seed + " has no open region");
+		}
+		int[][] starts = new int[robots][];
+		int[][] goals = new int[robots][];
+		for (int i = 0; i < robots; i++) {
+			starts[i] = cells[i];
+			goals[i] = cells[robots + i];
+		}
+		problem = new MultiRobotMazeworldProblem(generator.getMaze(), goals, starts);
+	}
+
+	@Benchmark
+	public List<UUSearchProblem.UUSearchNode> parallelAStar() {
+		return problem.parallelAStarSearch(threads);
+	}
+
+	// doesn't depend on threads; run it with -p threads=1 to leave out the repeats
+	@Benchmark
+	public List<UUSearchProblem.UUSearchNode> astar() {
+		return problem.AStarSearch();
+	}
+}
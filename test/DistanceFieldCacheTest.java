@@ -0,0 +1,101 @@
+package mazeworld;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+public class DistanceFieldCacheTest {
+
+	// an open 8x8 maze, with a wall across x = 4 from y = 0 to y = 6 if walled
+	private static Maze maze(boolean walled) {
+		int[][] barriers = walled ? new int[7][] : new int[0][];
+		for (int i = 0; i < barriers.length; i++) {
+			barriers[i] = new int[] { 4, i };
+		}
+		return new Maze(8, 8, barriers);
+	}
+
+	@Test
+	public void dropsTheLeastRecentlyUsedField() {
+		Maze m = maze(false);
+		DistanceFieldCache cache = new DistanceFieldCache(2, false);
+		DistanceField a = cache.get(m, 0, 0);
+		DistanceField b = cache.get(m, 7, 0);
+		assertSame(a, cache.get(m, 0, 0));    // a is now more recent than b
+		cache.get(m, 7, 7);                   // evicts b
+		assertEquals(2, cache.size());
+
+		assertSame(a, cache.get(m, 0, 0));
+		assertNotSame(b, cache.get(m, 7, 0));
+		assertEquals(4, cache.getMisses());
+		assertEquals(2, cache.getHits());
+	}
+
+	@Test
+	public void dropsTheFieldsWhenBarriersChange() {
+		DistanceFieldCache cache = new DistanceFieldCache(4, true);
+		DistanceField open = cache.get(maze(false), 0, 0);
+		assertEquals(10, open.getDistance(7, 3));
+
+		// an equal copy of the maze keeps the fields
+		assertSame(open, cache.get(maze(false), 0, 0));
+		assertEquals(0, cache.getInvalidations());
+
+		DistanceField walled = cache.get(maze(true), 0, 0);
+		assertNotSame(open, walled);
+		assertEquals(1, cache.getInvalidations());
+		assertEquals(1, cache.size());
+		assertEquals(18, walled.getDistance(7, 3));   // around the wall through (4,7)
+	}
+
+	@Test
+	public void invalidateDropsEveryField() {
+		Maze m = maze(false);
+		DistanceFieldCache cache = new DistanceFieldCache(4, false);
+		DistanceField a = cache.get(m, 0, 0);
+		cache.get(m, 7, 7);
+		cache.invalidate();
+		assertEquals(0, cache.size());
+		assertEquals(1, cache.getInvalidations());
+		assertNotSame(a, cache.get(m, 0, 0));
+	}
+
+	@Test
+	public void computesAGoalOnceForManyThreads() throws Exception {
+		MazeGenerator generator = new MazeGenerator(256, 256, 0.2, 1);
+		final Maze m = generator.getMaze();
+		final int[] goal = generator.freeCells(1)[0];
+		final DistanceFieldCache cache = new DistanceFieldCache(4, false);
+		final CountDownLatch start = new CountDownLatch(1);
+		int threads = 8;
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			ArrayList<Future<DistanceField>> fields = new ArrayList<Future<DistanceField>>();
+			for (int i = 0; i < threads; i++) {
+				fields.add(pool.submit(new Callable<DistanceField>() {
+					public DistanceField call() throws InterruptedException {
+						start.await();
+						return cache.get(m, goal[0], goal[1]);
+					}
+				}));
+			}
+			start.countDown();
+			for (int i = 1; i < threads; i++) {
+				assertSame(fields.get(0).get(), fields.get(i).get());
+			}
+		} finally {
+			pool.shutdown();
+		}
+		assertEquals(1, cache.getMisses());
+		assertEquals(threads - 1, cache.getHits());
+	}
+}